@@ -0,0 +1,132 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports JMH
+*/
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+Imports java.sql y java.util
+*/
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/* ------------------------------------------
+
+            Clase BenchmarkConexiones
+
+   ------------------------------------------
+ Operaciones por segundo de la misma lectura y la misma escritura hechas de dos formas:
+ - Con GestorConexiones, como hace ahora BaseDeDatos: conexiones abiertas toda la sesión
+   y sentencias preparadas en su caché (CacheSentencias).
+ - Como se hacía antes: DriverManager.getConnection, prepareStatement y close en cada llamada.
+
+ La lectura es una tarea por id y la escritura, el UPDATE de una tarea por id: consultas
+ baratas, para que se vea lo que cuesta abrir y cerrar la conexión.
+ Las dos formas usan el mismo archivo, que ya está en modo WAL.
+
+   java -jar benchmarks/target/benchmarks.jar BenchmarkConexiones
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkConexiones {
+
+    private static final String LEER = "SELECT id, titulo, descripcion, fecha, id_estado, id_categoria FROM tareas WHERE id = ?";
+    private static final String ACTUALIZAR = "UPDATE tareas SET titulo = ? WHERE id = ?";
+
+    @Param({"1000", "100000"})
+    public int tareas;
+
+    private String url;
+    private GestorConexiones conexiones;
+    private int contador = 0;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        url = "jdbc:sqlite:" + DatosSinteticos.prepararCopia(tareas);
+        conexiones = new GestorConexiones(url, 1, PerfilDurabilidad.EQUILIBRADO);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        conexiones.close();
+    }
+
+    /*
+     Id de la siguiente tarea, repartidas por toda la tabla (las sintéticas van de 1 a "tareas")
+     */
+    private int siguienteId() {
+        return 1 + (int) ((long) ++contador * 7919 % tareas);
+    }
+
+    /* ---- Lectura ---- */
+
+    @Benchmark
+    public String leerConGestor() throws SQLException {
+        int id = siguienteId();
+        return conexiones.conLector(conexion -> {
+            PreparedStatement prepstat = conexiones.preparar(conexion, LEER);
+            prepstat.setInt(1, id);
+            return titulo(prepstat);
+        });
+    }
+
+    @Benchmark
+    public String leerConConexionNueva() throws SQLException {
+        try (Connection conexion = DriverManager.getConnection(url);
+             PreparedStatement prepstat = conexion.prepareStatement(LEER)) {
+            prepstat.setInt(1, siguienteId());
+            return titulo(prepstat);
+        }
+    }
+
+    /* ---- Escritura ---- */
+
+    @Benchmark
+    public int escribirConGestor() throws SQLException {
+        int id = siguienteId();
+        return conexiones.conEscritor(conexion -> {
+            PreparedStatement prepstat = conexiones.preparar(conexion, ACTUALIZAR);
+            prepstat.setString(1, "Actualizada " + contador);
+            prepstat.setInt(2, id);
+            return prepstat.executeUpdate();
+        });
+    }
+
+    @Benchmark
+    public int escribirConConexionNueva() throws SQLException {
+        try (Connection conexion = DriverManager.getConnection(url);
+             PreparedStatement prepstat = conexion.prepareStatement(ACTUALIZAR)) {
+            prepstat.setString(1, "Actualizada " + contador);
+            prepstat.setInt(2, siguienteId());
+            return prepstat.executeUpdate();
+        }
+    }
+
+    private static String titulo(PreparedStatement prepstat) throws SQLException {
+        try (ResultSet resultSet = prepstat.executeQuery()) {
+            return resultSet.next() ? resultSet.getString("titulo") : null;
+        }
+    }
+}
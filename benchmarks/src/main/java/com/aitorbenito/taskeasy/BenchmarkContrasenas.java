@@ -0,0 +1,75 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports JMH
+*/
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+Imports java.util
+*/
+import java.util.concurrent.TimeUnit;
+
+/* ------------------------------------------
+
+            Clase BenchmarkContrasenas
+
+   ------------------------------------------
+ Coste de la verificación de contraseñas del login (HashContrasenas), sin base de datos,
+ con varios valores de pbkdf2_iteraciones. Junto con la búsqueda del usuario de BenchmarkLecturas
+ da el tiempo total de un login:
+ - verificarHash:   contraseña correcta contra un hash PBKDF2 (el caso normal).
+ - verificarEnClaro: contraseña antigua guardada en claro (hasta el primer login).
+ - crearHash:       el hash nuevo que se guarda al registrarse o al actualizar una contraseña en claro.
+
+ Sirve para elegir el coste: lo recomendable es el mayor que deje el login por debajo
+ de unos cientos de milisegundos en los equipos más lentos donde se use la aplicación.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkContrasenas {
+
+    private static final String PASSWORD = "clave-de-prueba";
+
+    @Param({"100000", "310000", "600000"})
+    public int iteraciones;
+
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        hash = HashContrasenas.hash(PASSWORD, iteraciones);
+    }
+
+    @Benchmark
+    public boolean verificarHash() {
+        return HashContrasenas.verificar(PASSWORD, hash);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean verificarEnClaro() {
+        return HashContrasenas.verificar(PASSWORD, PASSWORD);
+    }
+
+    @Benchmark
+    public String crearHash() {
+        return HashContrasenas.hash(PASSWORD, iteraciones);
+    }
+}
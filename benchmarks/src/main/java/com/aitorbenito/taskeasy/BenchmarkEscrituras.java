@@ -0,0 +1,151 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports JMH
+*/
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+Imports java.util
+*/
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* ------------------------------------------
+
+            Clase BenchmarkEscrituras
+
+   ------------------------------------------
+ Tiempo medio de las escrituras que hace la aplicación, con 1.000, 100.000 y 1.000.000 de tareas
+ y con cada perfil de durabilidad (PerfilDurabilidad), que es lo que más cambia el coste de un commit:
+ - Insertar una tarea (el mismo INSERT que el formulario) y 100 en un lote.
+ - Actualizar una tarea (el mismo UPDATE que el formulario y ColaEscrituraDiferida).
+ - Eliminar una tarea y 100 en un lote (como "eliminar seleccionadas").
+
+ Para que el tamaño de la tabla no cambie durante la medida, las filas que se eliminan
+ se insertan antes de cada llamada, fuera del tiempo medido (Level.Invocation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkEscrituras {
+
+    private static final String INSERTAR =
+            "INSERT INTO tareas (titulo, descripcion, fecha, id_estado, usuario_id, id_categoria) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ACTUALIZAR =
+            "UPDATE tareas SET titulo=?, descripcion=?, fecha=?, id_estado=?, id_categoria=? WHERE id=?";
+    private static final String ELIMINAR = "DELETE FROM tareas WHERE id=?";
+
+    private static final int TAMANO_LOTE = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    public int tareas;
+
+    @Param({"SEGURO", "EQUILIBRADO", "RAPIDO"})
+    public String perfil;
+
+    private int contador = 0;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        /* Antes de usar BaseDeDatos: las conexiones se abren con este perfil */
+        System.setProperty("taskeasy.durabilidad", perfil);
+        DatosSinteticos.prepararCopia(tareas);
+        BaseDeDatos.asegurarInicio();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        BaseDeDatos.cerrar();
+    }
+
+    /*
+     Parámetros de una tarea nueva del usuario principal
+     */
+    private Object[] tareaNueva() {
+        int n = ++contador;
+        return new Object[]{"Benchmark " + n, "Tarea creada por el benchmark", "2025-06-15",
+                EstadoTarea.PENDIENTE, DatosSinteticos.USUARIO_PRINCIPAL, 1 + (n & 3)};
+    }
+
+    /* ---- Insertar ---- */
+
+    @Benchmark
+    public int insertar() throws Exception {
+        return BaseDeDatos.insertar(INSERTAR, tareaNueva());
+    }
+
+    @Benchmark
+    public int insertarLote100() throws Exception {
+        List<Object[]> filas = new ArrayList<>(TAMANO_LOTE);
+        for (int i = 0; i < TAMANO_LOTE; i++) filas.add(tareaNueva());
+        return BaseDeDatos.ejecutarLote(INSERTAR, filas);
+    }
+
+    /* ---- Actualizar ---- */
+
+    @Benchmark
+    public void actualizar() throws Exception {
+        int n = ++contador;
+        /* Tareas repartidas por toda la tabla (los ids de las sintéticas van de 1 a "tareas") */
+        int id = 1 + (int) ((long) n * 7919 % tareas);
+        BaseDeDatos.ejecutar(ACTUALIZAR, "Actualizada " + n, "Descripción actualizada", "2025-07-01",
+                EstadoTarea.values()[n % EstadoTarea.values().length], 1 + (n & 3), id);
+    }
+
+    /* ---- Eliminar ---- */
+
+    /*
+     Fila y lote que elimina cada llamada. Son estados aparte para que su Setup (las inserciones
+     antes de cada llamada) solo se ejecute en el benchmark que los usa.
+     */
+    @State(Scope.Thread)
+    public static class FilaAEliminar {
+        int id;
+
+        @Setup(Level.Invocation)
+        public void insertar(BenchmarkEscrituras benchmark) throws Exception {
+            id = BaseDeDatos.insertar(INSERTAR, benchmark.tareaNueva());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LoteAEliminar {
+        final List<Object[]> ids = new ArrayList<>(TAMANO_LOTE);
+
+        @Setup(Level.Invocation)
+        public void insertar(BenchmarkEscrituras benchmark) throws Exception {
+            ids.clear();
+            for (int i = 0; i < TAMANO_LOTE; i++) {
+                ids.add(new Object[]{BaseDeDatos.insertar(INSERTAR, benchmark.tareaNueva())});
+            }
+        }
+    }
+
+    @Benchmark
+    public void eliminar(FilaAEliminar fila) throws Exception {
+        BaseDeDatos.ejecutar(ELIMINAR, fila.id);
+    }
+
+    @Benchmark
+    public int eliminarLote100(LoteAEliminar lote) throws Exception {
+        return BaseDeDatos.ejecutarLote(ELIMINAR, lote.ids);
+    }
+}
@@ -0,0 +1,129 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports JMH
+*/
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+Imports java.util
+*/
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* ------------------------------------------
+
+            Clase BenchmarkLecturas
+
+   ------------------------------------------
+ Tiempo medio de las lecturas que hace la aplicación, con 1.000, 100.000 y 1.000.000 de tareas:
+ - Cargar todas las tareas de un usuario (ConsultasTareas.deUsuario): el principal,
+   con el 10% de las tareas, y uno normal, con unas 100.
+ - Primera página de la lista paginada (ConsultasTareas.pagina).
+ - Categorías: consulta a la base de datos y búsqueda en el registro en memoria.
+ - Búsqueda del usuario del login (ConsultasUsuarios.buscarCredenciales) por nombre, por email
+   y de uno que no existe. El coste del hash de la contraseña se mide aparte, en BenchmarkContrasenas.
+
+ Las lecturas no cambian los datos, así que todas comparten la misma copia de la base de datos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkLecturas {
+
+    @Param({"1000", "100000", "1000000"})
+    public int tareas;
+
+    /* Usuarios repartidos por toda la tabla, para no consultar siempre el mismo */
+    private static final int CREDENCIALES = 1024;
+    private String[] nombres;
+    private String[] emails;
+    private int siguiente = 0;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        DatosSinteticos.prepararCopia(tareas);
+        BaseDeDatos.asegurarInicio();
+
+        int usuarios = DatosSinteticos.usuarios(tareas);
+        nombres = new String[CREDENCIALES];
+        emails = new String[CREDENCIALES];
+        for (int i = 0; i < CREDENCIALES; i++) {
+            int n = 1 + (int) ((long) i * 7919 % usuarios);
+            nombres[i] = "usuario" + n;
+            emails[i] = "usuario" + n + "@taskeasy.test";
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        BaseDeDatos.cerrar();
+    }
+
+    private int siguiente() {
+        siguiente = (siguiente + 1) & (CREDENCIALES - 1);
+        return siguiente;
+    }
+
+    /* ---- Tareas ---- */
+
+    @Benchmark
+    public List<Tarea> cargarTareasUsuarioPrincipal() throws Exception {
+        return ConsultasTareas.deUsuario(DatosSinteticos.USUARIO_PRINCIPAL);
+    }
+
+    @Benchmark
+    public List<Tarea> cargarTareasUsuarioNormal() throws Exception {
+        return ConsultasTareas.deUsuario(DatosSinteticos.USUARIO_PRINCIPAL + 1);
+    }
+
+    @Benchmark
+    public List<Tarea> primeraPagina() throws Exception {
+        return ConsultasTareas.pagina(DatosSinteticos.USUARIO_PRINCIPAL, FiltroTareas.NINGUNO, null, ListaTareasPaginada.TAMANO_PAGINA);
+    }
+
+    /* ---- Categorías ---- */
+
+    @Benchmark
+    public List<Categoria> categoriasDeLaBaseDeDatos() {
+        return BaseDeDatos.obtenerCategorias();
+    }
+
+    @Benchmark
+    public Categoria categoriaEnMemoria() {
+        return RegistroCategorias.buscar(1 + (siguiente() & 3));
+    }
+
+    /* ---- Login: solo la búsqueda del usuario (la verificación está en BenchmarkContrasenas) ---- */
+
+    @Benchmark
+    public List<ConsultasUsuarios.Credenciales> buscarUsuarioPorNombre() throws Exception {
+        return ConsultasUsuarios.buscarCredenciales(nombres[siguiente()]);
+    }
+
+    @Benchmark
+    public List<ConsultasUsuarios.Credenciales> buscarUsuarioPorEmail() throws Exception {
+        return ConsultasUsuarios.buscarCredenciales(emails[siguiente()]);
+    }
+
+    @Benchmark
+    public List<ConsultasUsuarios.Credenciales> buscarUsuarioInexistente() throws Exception {
+        return ConsultasUsuarios.buscarCredenciales("nadie" + siguiente());
+    }
+}
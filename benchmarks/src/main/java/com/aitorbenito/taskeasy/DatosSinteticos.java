@@ -0,0 +1,174 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.io, java.nio y java.sql
+*/
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/*
+Imports java.time y java.util
+*/
+import java.time.LocalDate;
+import java.util.Random;
+
+/* ------------------------------------------
+
+            Clase DatosSinteticos
+
+   ------------------------------------------
+ Bases de datos de prueba para los benchmarks, con el esquema real de la aplicación
+ (MigracionesEsquema) y un número fijo de tareas generadas al azar (siempre las mismas: semilla fija).
+
+ - El usuario 1 (USUARIO_PRINCIPAL) tiene el 10% de las tareas: 100, 10.000 o 100.000.
+ - El resto se reparte entre usuarios con unas TAREAS_POR_USUARIO cada uno,
+   así la tabla 'usuarios' también crece con el tamaño (para el login).
+ - Usuario n: nombre "usuario<n>", email "usuario<n>@taskeasy.test", contraseña "clave<n>".
+
+ Cada tamaño se genera una sola vez como plantilla en la carpeta temporal del sistema
+ (taskeasy-benchmarks/) y cada benchmark trabaja sobre una copia nueva, que se borra al acabar.
+ Si cambia el esquema (VERSION_ACTUAL), la plantilla cambia de nombre y se vuelve a generar.
+ */
+final class DatosSinteticos {
+
+    static final int USUARIO_PRINCIPAL = 1;
+    static final int TAREAS_POR_USUARIO = 100;
+
+    private static final int FILAS_POR_LOTE = 10_000;
+    private static final long SEMILLA = 42;
+
+    private static final String[] PALABRAS = {
+            "informe", "reunión", "factura", "proyecto", "revisar", "llamar", "enviar", "comprar",
+            "preparar", "presentación", "cliente", "entrega", "médico", "examen", "viaje", "código"
+    };
+
+    private DatosSinteticos() {}
+
+    /*
+     Número de usuarios de la base de datos de ese tamaño (el principal más los demás).
+     */
+    static int usuarios(int tareas) {
+        return 1 + Math.max(1, tareas * 9 / 10 / TAREAS_POR_USUARIO);
+    }
+
+    /* ----------------------------------
+
+            Metodo prepararCopia
+
+       ----------------------------------
+     Copia la plantilla de ese tamaño a un archivo temporal nuevo y hace que BaseDeDatos lo use
+     (propiedad taskeasy.db). Hay que llamarlo ANTES de usar BaseDeDatos por primera vez:
+     JMH ejecuta cada combinación de parámetros en su propia JVM, así que cada una tiene su copia.
+     */
+    static Path prepararCopia(int tareas) throws IOException, SQLException {
+        Path plantilla = plantilla(tareas);
+
+        Path copia = Files.createTempFile("taskeasy-benchmark-", ".db");
+        Files.copy(plantilla, copia, StandardCopyOption.REPLACE_EXISTING);
+        for (String sufijo : new String[]{"", "-wal", "-shm"}) {
+            new File(copia + sufijo).deleteOnExit();
+        }
+
+        System.setProperty("taskeasy.db", copia.toString());
+        return copia;
+    }
+
+    /*
+     Plantilla de ese tamaño, generándola si aún no existe.
+     */
+    private static synchronized Path plantilla(int tareas) throws IOException, SQLException {
+        Path carpeta = Path.of(System.getProperty("java.io.tmpdir"), "taskeasy-benchmarks");
+        Files.createDirectories(carpeta);
+
+        Path plantilla = carpeta.resolve("tareas-" + tareas + "-v" + MigracionesEsquema.VERSION_ACTUAL + ".db");
+        if (Files.exists(plantilla)) return plantilla;
+
+        /* Se genera con otro nombre y se renombra al final: nunca queda una plantilla a medias */
+        Path temporal = Files.createTempFile(carpeta, "generando-", ".db");
+        Files.delete(temporal);
+        long inicio = System.nanoTime();
+        generar(temporal, tareas);
+        Files.move(temporal, plantilla, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Datos sintéticos: %d tareas y %d usuarios generados en %d ms (%s)%n",
+                tareas, usuarios(tareas), (System.nanoTime() - inicio) / 1_000_000, plantilla);
+        return plantilla;
+    }
+
+    /* ----------------------------------
+
+                Metodo generar
+
+       ----------------------------------
+     Crea el esquema con las migraciones de la aplicación y lo llena en una sola transacción.
+     Sin fsync ni diario (synchronous OFF, journal_mode MEMORY): si falla, la plantilla se descarta.
+     */
+    private static void generar(Path archivo, int tareas) throws SQLException {
+        Random aleatorio = new Random(SEMILLA);
+        int usuarios = usuarios(tareas);
+        LocalDate primerDia = LocalDate.of(2025, 1, 1);
+
+        try (Connection conexion = DriverManager.getConnection("jdbc:sqlite:" + archivo)) {
+            try (Statement stat = conexion.createStatement()) {
+                stat.execute("PRAGMA synchronous = OFF");
+                stat.execute("PRAGMA journal_mode = MEMORY");
+            }
+
+            MigracionesEsquema.aplicar(conexion);
+
+            conexion.setAutoCommit(false);
+            try (PreparedStatement usuario = conexion.prepareStatement(
+                    "INSERT INTO usuarios (id, nombre, email, password) VALUES (?, ?, ?, ?)")) {
+                for (int n = 1; n <= usuarios; n++) {
+                    usuario.setInt(1, n);
+                    usuario.setString(2, "usuario" + n);
+                    usuario.setString(3, "usuario" + n + "@taskeasy.test");
+                    usuario.setString(4, "clave" + n);
+                    usuario.addBatch();
+                }
+                usuario.executeBatch();
+            }
+
+            try (PreparedStatement tarea = conexion.prepareStatement(
+                    "INSERT INTO tareas (titulo, descripcion, fecha, id_estado, usuario_id, id_categoria)"
+                            + " VALUES (?, ?, ?, ?, ?, ?)")) {
+                int otras = 0;
+                for (int i = 0; i < tareas; i++) {
+                    /* Una de cada diez para el principal, las demás por turnos entre el resto de usuarios */
+                    int usuarioId = i % 10 == 0 ? USUARIO_PRINCIPAL : 2 + otras++ % (usuarios - 1);
+
+                    tarea.setString(1, "Tarea " + i + " " + palabra(aleatorio));
+                    tarea.setString(2, palabra(aleatorio) + " " + palabra(aleatorio) + " " + palabra(aleatorio));
+                    /* Un 5% sin fecha, el resto repartidas en dos años */
+                    tarea.setString(3, aleatorio.nextInt(20) == 0 ? null : primerDia.plusDays(aleatorio.nextInt(730)).toString());
+                    tarea.setInt(4, aleatorio.nextInt(EstadoTarea.values().length));
+                    tarea.setInt(5, usuarioId);
+                    tarea.setInt(6, 1 + aleatorio.nextInt(4));
+                    tarea.addBatch();
+
+                    if ((i + 1) % FILAS_POR_LOTE == 0) tarea.executeBatch();
+                }
+                tarea.executeBatch();
+            }
+            conexion.commit();
+            conexion.setAutoCommit(true);
+
+            /* Estadísticas para el planificador con los datos ya cargados, como en una base de datos real */
+            try (Statement stat = conexion.createStatement()) {
+                stat.execute("ANALYZE");
+            }
+        }
+    }
+
+    private static String palabra(Random aleatorio) {
+        return PALABRAS[aleatorio.nextInt(PALABRAS.length)];
+    }
+}
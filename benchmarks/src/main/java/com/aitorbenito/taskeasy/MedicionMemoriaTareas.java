@@ -0,0 +1,92 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.lang, java.time y java.util
+*/
+import java.lang.ref.Reference;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/* ------------------------------------------
+
+          Clase MedicionMemoriaTareas
+
+   ------------------------------------------
+ Medición (no es un benchmark JMH) de los bytes de heap que ocupa cada Tarea, con 100.000 tareas
+ en memoria a la vez. Mide dos casos:
+ - Sin propiedades: como quedan las tareas que nunca se muestran ni se editan
+   (solo el record Datos y el objeto Tarea).
+ - Con todas las propiedades pedidas: como quedan las filas que la tabla ha pintado. Equivale a
+   la Tarea de antes, que creaba siempre sus SimpleXxxProperty en el constructor.
+
+ Todas las tareas comparten título, descripción y fecha, así que solo se cuenta lo que ocupa
+ la propia Tarea y no sus textos. Se mide el heap ocupado después de System.gc() antes y después
+ de crearlas, varias veces, y se escribe la mediana. Conviene un heap fijo para que el
+ recolector no cambie de tamaño por el medio:
+
+   java -Xms512m -Xmx512m -cp benchmarks/target/benchmarks.jar com.aitorbenito.taskeasy.MedicionMemoriaTareas [tareas]
+ */
+public final class MedicionMemoriaTareas {
+
+    private static final int REPETICIONES = 5;
+
+    private static final String TITULO = "Preparar el informe del cliente";
+    private static final String DESCRIPCION = "Revisar las cifras antes de enviarlo";
+    private static final LocalDate FECHA = LocalDate.of(2024, 1, 1);
+
+    private MedicionMemoriaTareas() {}
+
+    public static void main(String[] args) {
+        int tareas = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        System.out.printf("Bytes por Tarea con %,d tareas en memoria:%n", tareas);
+        System.out.printf("  sin propiedades:              %,8.1f%n", mediana(tareas, false));
+        System.out.printf("  con todas las propiedades:    %,8.1f%n", mediana(tareas, true));
+    }
+
+    private static double mediana(int tareas, boolean conPropiedades) {
+        double[] medidas = new double[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            medidas[i] = bytesPorTarea(tareas, conPropiedades);
+        }
+        Arrays.sort(medidas);
+        return medidas[REPETICIONES / 2];
+    }
+
+    /*
+     Crea las tareas, las mantiene vivas en un array mientras se mide y las suelta al salir.
+     El array se crea antes de la primera medida para que no cuente.
+     */
+    private static double bytesPorTarea(int tareas, boolean conPropiedades) {
+        Tarea[] vivas = new Tarea[tareas];
+        long antes = heapOcupado();
+
+        for (int i = 0; i < tareas; i++) {
+            Tarea tarea = new Tarea(i + 1, TITULO, DESCRIPCION, FECHA, EstadoTarea.PENDIENTE, i % 4 == 0 ? null : i % 8);
+            if (conPropiedades) {
+                tarea.tituloProperty();
+                tarea.descripcionProperty();
+                tarea.fechaProperty();
+                tarea.estadoProperty();
+                tarea.idCategoriaProperty();
+            }
+            vivas[i] = tarea;
+        }
+
+        long despues = heapOcupado();
+        Reference.reachabilityFence(vivas);
+        return (double) (despues - antes) / tareas;
+    }
+
+    /*
+     Bytes ocupados en el heap después de pedir varias recolecciones.
+     */
+    private static long heapOcupado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,155 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.io, java.nio y java.sql
+*/
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/*
+Imports java.util
+*/
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/* ------------------------------------------
+
+        Clase PruebaResistenciaConsultas
+
+   ------------------------------------------
+ Prueba larga (no es un benchmark JMH): lanza muchas consultas seguidas con
+ BaseDeDatos.consultar y BaseDeDatos.consultarStream y comprueba que no se van quedando
+ archivos abiertos ni memoria ocupada por el camino (ResultSet o conexiones sin cerrar).
+
+ Repite cuatro formas de consultar, una detrás de otra:
+ - consultar, que devuelve la lista entera.
+ - consultarStream leído hasta el final.
+ - consultarStream cerrado a medias (findFirst dentro del try-with-resources).
+ - consultar con un mapeador que falla en la primera fila.
+
+ Cada INFORME_CADA consultas escribe los descriptores abiertos del proceso (/proc/self/fd,
+ solo en Linux) y el heap ocupado después de un System.gc(). Al final compara con el primer
+ informe y termina con código 1 si alguno ha crecido más de la cuenta.
+
+   java -cp benchmarks/target/benchmarks.jar com.aitorbenito.taskeasy.PruebaResistenciaConsultas [consultas] [tareas]
+
+ Por defecto, 100.000 consultas sobre la base de datos de 100.000 tareas.
+ */
+public final class PruebaResistenciaConsultas {
+
+    private static final int INFORME_CADA = 10_000;
+    private static final int MARGEN_DESCRIPTORES = 8;
+    private static final long MARGEN_HEAP_BYTES = 32L * 1024 * 1024;
+
+    private static final String TAREAS_USUARIO =
+            "SELECT id, titulo FROM tareas WHERE usuario_id = ? ORDER BY id LIMIT 50";
+
+    private PruebaResistenciaConsultas() {}
+
+    public static void main(String[] args) throws Exception {
+        int consultas = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int tareas = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int usuarios = DatosSinteticos.usuarios(tareas);
+
+        DatosSinteticos.prepararCopia(tareas);
+        BaseDeDatos.asegurarInicio();
+
+        long descriptoresIniciales = -1;
+        long heapInicial = -1;
+        int fallosProvocados = 0;
+
+        try {
+            for (int n = 1; n <= consultas; n++) {
+                int usuario = 1 + n % usuarios;
+
+                switch (n % 4) {
+                    case 0 -> BaseDeDatos.consultar(TAREAS_USUARIO, resultSet -> resultSet.getString("titulo"), usuario);
+                    case 1 -> {
+                        try (Stream<String> titulos = BaseDeDatos.consultarStream(TAREAS_USUARIO,
+                                resultSet -> resultSet.getString("titulo"), usuario)) {
+                            titulos.forEach(titulo -> {});
+                        }
+                    }
+                    case 2 -> {
+                        try (Stream<String> titulos = BaseDeDatos.consultarStream(TAREAS_USUARIO,
+                                resultSet -> resultSet.getString("titulo"), usuario)) {
+                            Optional<String> primero = titulos.findFirst();
+                            primero.ifPresent(titulo -> {});
+                        }
+                    }
+                    default -> {
+                        try {
+                            BaseDeDatos.consultar(TAREAS_USUARIO, resultSet -> {
+                                throw new SQLException("Fallo provocado por la prueba");
+                            }, usuario);
+                        } catch (SQLException | BaseDeDatos.ExcepcionConsulta esperado) {
+                            fallosProvocados++;
+                        }
+                    }
+                }
+
+                if (n % INFORME_CADA == 0) {
+                    long descriptores = descriptoresAbiertos();
+                    long heap = heapOcupado();
+                    if (descriptoresIniciales < 0) {
+                        descriptoresIniciales = descriptores;
+                        heapInicial = heap;
+                    }
+                    System.out.printf("%,9d consultas  descriptores: %s  heap: %,d KB%n",
+                            n, descriptores < 0 ? "no disponible" : descriptores, heap / 1024);
+                }
+            }
+        } finally {
+            BaseDeDatos.cerrar();
+        }
+
+        long descriptoresFinales = descriptoresAbiertos();
+        long heapFinal = heapOcupado();
+        System.out.printf("Fin: %,d consultas (%,d fallos provocados), descriptores tras cerrar: %s, heap: %,d KB%n",
+                consultas, fallosProvocados, descriptoresFinales < 0 ? "no disponible" : descriptoresFinales, heapFinal / 1024);
+
+        List<String> problemas = new ArrayList<>();
+        if (descriptoresIniciales >= 0 && descriptoresFinales > descriptoresIniciales + MARGEN_DESCRIPTORES) {
+            problemas.add("los descriptores abiertos han pasado de " + descriptoresIniciales + " a " + descriptoresFinales);
+        }
+        if (heapInicial >= 0 && heapFinal > heapInicial + MARGEN_HEAP_BYTES) {
+            problemas.add("el heap ocupado ha pasado de " + heapInicial / 1024 + " KB a " + heapFinal / 1024 + " KB");
+        }
+
+        if (problemas.isEmpty()) {
+            System.out.println("OK: ni descriptores ni heap crecen con las consultas");
+        } else {
+            problemas.forEach(problema -> System.out.println("FUGA: " + problema));
+            System.exit(1);
+        }
+    }
+
+    /*
+     Número de descriptores de archivo abiertos por el proceso, o -1 si no hay /proc (no es Linux).
+     */
+    private static long descriptoresAbiertos() {
+        Path fd = Path.of("/proc/self/fd");
+        if (!Files.isDirectory(fd)) return -1;
+        try (Stream<Path> abiertos = Files.list(fd)) {
+            return abiertos.count();
+        } catch (IOException excepcion) {
+            return -1;
+        }
+    }
+
+    /*
+     Bytes ocupados en el heap después de pedir una recolección (aproximado, pero estable entre llamadas).
+     */
+    private static long heapOcupado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
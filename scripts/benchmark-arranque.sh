@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+# Creado por Aitor Benito Heras "ExInDer"
+#
+# Benchmark de arranque de TaskEasy: tiempo hasta el primer frame de la ventana de login,
+# con y sin el archivo AppCDS que genera el perfil appcds del pom.xml.
+#
+# Uso (después de "mvn -P appcds package", desde la carpeta del proyecto):
+#     scripts/benchmark-arranque.sh [repeticiones] [ruta/bin/java]
+#
+# Por defecto 10 repeticiones de cada modo, alternadas, con el java del runtime taskeasy-runtime
+# (el mismo con el que se creó el archivo). Cada arranque usa una carpeta de datos nueva en target/,
+# abre el login y la ventana principal y se cierra solo (-Dtaskeasy.salir_tras_arranque=true).
+# Necesita una sesión gráfica (en Linux sin escritorio: xvfb-run scripts/benchmark-arranque.sh).
+#
+# El tiempo lo mide la propia aplicación (PerfilArranque) desde el instante en que este script
+# lanza la JVM (-Dtaskeasy.inicio_lanzador) hasta el primer frame del login.
+
+set -euo pipefail
+
+REPETICIONES="${1:-10}"
+JAVA="${2:-taskeasy-runtime/bin/java}"
+JAR="$(ls target/TaskEasy-*.jar | grep -v original | head -n 1)"
+ARCHIVO="target/taskeasy.jsa"
+DATOS="target/benchmark-datos"
+
+if [ ! -f "$ARCHIVO" ]; then
+    echo "No existe $ARCHIVO: genera primero el archivo con  mvn -P appcds package" >&2
+    exit 1
+fi
+
+# Arranca una vez la aplicación y escribe los milisegundos hasta el primer frame
+arrancar() {
+    rm -rf "$DATOS"
+    "$JAVA" "$@" \
+        -Dtaskeasy.inicio_lanzador="$(date +%s%3N)" \
+        -Dtaskeasy.perfil_arranque=true \
+        -Dtaskeasy.salir_tras_arranque=true \
+        -Duser.home="$DATOS" \
+        -cp "$JAR" com.aitorbenito.taskeasy.Main 2>/dev/null \
+        | sed -n 's/.*Hasta el primer frame: *\([0-9]*\) ms.*/\1/p'
+}
+
+# Mediana de una lista de números, uno por línea
+mediana() {
+    sort -n | awk '{ v[NR] = $1 } END { if (NR % 2) print v[(NR + 1) / 2]; else print int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+SIN_CDS=()
+CON_CDS=()
+for ((i = 1; i <= REPETICIONES; i++)); do
+    SIN_CDS+=("$(arrancar -Xshare:auto)")
+    CON_CDS+=("$(arrancar -XX:SharedArchiveFile="$ARCHIVO" -Xshare:auto)")
+    echo "Arranque $i: sin AppCDS ${SIN_CDS[-1]} ms, con AppCDS ${CON_CDS[-1]} ms"
+done
+
+echo
+echo "Mediana hasta el primer frame ($REPETICIONES arranques de cada):"
+echo "  sin AppCDS: $(printf '%s\n' "${SIN_CDS[@]}" | mediana) ms"
+echo "  con AppCDS: $(printf '%s\n' "${CON_CDS[@]}" | mediana) ms"
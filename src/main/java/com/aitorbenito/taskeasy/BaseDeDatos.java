@@ -4,15 +4,24 @@ package com.aitorbenito.taskeasy;
 /* Importamos java.sql para que se pueda usar JDBC y trabajar con sqlite en la base de datos.
   Sin este import no podremos conectarnos a la base de datos ni ejecutar comandos de sql necesarios para el uso de la app*/
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.sql.*;
 
 /* Importamos java.time.LocalDate para recoger la fecha y convertirla en texto*/
 import java.time.LocalDate;
 
-/* Importamos java.time.format.DateTimeFormater para el formato de la fecha de las tareas*/
-import java.time.format.DateTimeFormatter;
+/* Imports de colecciones y Streams para devolver las filas de las consultas*/
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /*----------------------------
 
@@ -29,15 +38,33 @@ public class BaseDeDatos {
      */
     private static final String URL;
 
+    /*
+     Carpeta donde están la base de datos y su archivo de configuración (taskeasy.properties).
+     */
+    private static final File CARPETA_DATOS;
+
+    /*
+     Opciones del archivo "taskeasy.properties" de la carpeta de datos (vacío si no existe).
+     */
+    private static final String ARCHIVO_CONFIGURACION = "taskeasy.properties";
+    private static final Properties CONFIGURACION = new Properties();
+
     static {
         try {   /*
                     Obtenemos el nombre del sistema operativo (OS) donde se ejecuta la app
                     (“Windows 10”, “Linux”, “Mac OS X”) para decidir dónde guardar la base de datos.
+
+                    Con -Dtaskeasy.db=ruta/archivo.db se usa ese archivo y su carpeta en lugar de la normal
+                    (benchmarks, entrenamiento de AppCDS...), así nunca se toca la base de datos del usuario.
                 */
             String os = System.getProperty("os.name").toLowerCase();
+            String rutaPersonalizada = System.getProperty("taskeasy.db");
             String dataDir;
 
-            if (os.contains("win")) {
+            if (rutaPersonalizada != null && !rutaPersonalizada.isBlank()) {
+                dataDir = new File(rutaPersonalizada).getAbsoluteFile().getParent();
+
+            } else if (os.contains("win")) {
                 /*
                 Si es win (Windows) lo metemos en LOCALAPPDATA
                  */
@@ -57,11 +84,27 @@ public class BaseDeDatos {
              */
             File carpeta = new File(dataDir);
             if (!carpeta.exists()) carpeta.mkdirs();
+            CARPETA_DATOS = carpeta;
+
+            /*
+             Leemos el archivo de configuración si existe. Se lee en UTF-8 (Files.newBufferedReader),
+             para aceptar también valores con tilde.
+             */
+            File archivoConfiguracion = new File(carpeta, ARCHIVO_CONFIGURACION);
+            if (archivoConfiguracion.isFile()) {
+                try (Reader entrada = Files.newBufferedReader(archivoConfiguracion.toPath())) {
+                    CONFIGURACION.load(entrada);
+                } catch (IOException excepcion) {
+                    Metricas.error("leer " + ARCHIVO_CONFIGURACION, excepcion);
+                }
+            }
 
             /*
                 Definimos como se debe crear la ruta final de la base de datos
             */
-            File dbDestino = new File(dataDir + File.separator + "taskeasy.db");
+            File dbDestino = rutaPersonalizada != null && !rutaPersonalizada.isBlank()
+                    ? new File(rutaPersonalizada).getAbsoluteFile()
+                    : new File(dataDir + File.separator + "taskeasy.db");
 
             /*
              Si no existe base de datos creada localmente, la copia desde el JAR
@@ -84,6 +127,104 @@ public class BaseDeDatos {
         }
     }
 
+    /*
+     Número máximo de conexiones de lectura abiertas a la vez.
+     */
+    private static final int MAX_LECTORES = 4;
+
+    /*
+     Conexiones de larga duración: una de escritura y un pool pequeño de lectura.
+     Se crean bajo demanda, con el perfil de durabilidad configurado, y se cierran con el metodo cerrar().
+     */
+    private static final GestorConexiones CONEXIONES =
+            new GestorConexiones(URL, MAX_LECTORES, PerfilDurabilidad.desdeTexto(configuracion("durabilidad")));
+
+    /* true cuando asegurarInicio ya ha dejado el esquema al día */
+    private static boolean esquemaIniciado = false;
+
+    /*
+     Métricas (ver Metricas): un histograma de tiempos por cada operación pública,
+     las filas leídas y las operaciones que han terminado con una excepción.
+     */
+    private static final Metricas.Histograma TIEMPO_EJECUTAR = Metricas.histograma("bd.ejecutar");
+    private static final Metricas.Histograma TIEMPO_EJECUTAR_LOTE = Metricas.histograma("bd.ejecutarLote");
+    private static final Metricas.Histograma TIEMPO_TRANSACCION = Metricas.histograma("bd.enTransaccion");
+    private static final Metricas.Histograma TIEMPO_INSERTAR = Metricas.histograma("bd.insertar");
+    private static final Metricas.Histograma TIEMPO_INSERTAR_LOTE = Metricas.histograma("bd.insertarTareasLote");
+    private static final Metricas.Histograma TIEMPO_CONSULTAR = Metricas.histograma("bd.consultar");
+    private static final Metricas.Histograma TIEMPO_CONSULTAR_STREAM = Metricas.histograma("bd.consultarStream");
+    private static final Metricas.Contador FILAS_LEIDAS = Metricas.contador("bd.filas_leidas");
+    private static final Metricas.Contador FILAS_ESCRITAS = Metricas.contador("bd.filas_escritas");
+    private static final Metricas.Contador OPERACIONES_FALLIDAS = Metricas.contador("bd.operaciones_fallidas");
+
+    static {
+        Metricas.indicador("bd.cache_sentencias.aciertos", () -> CONEXIONES.estadisticasCache().aciertos());
+        Metricas.indicador("bd.cache_sentencias.fallos", () -> CONEXIONES.estadisticasCache().fallos());
+        Metricas.indicador("bd.conexiones_lectura", CONEXIONES::lectoresAbiertos);
+    }
+
+    /*
+     Operación de BaseDeDatos que se mide con medir(...)
+     */
+    @FunctionalInterface
+    private interface OperacionMedida<T> {
+        T ejecutar() throws SQLException;
+    }
+
+    /*
+     Ejecuta la operación y guarda en el histograma lo que ha tardado, también si falla.
+     */
+    private static <T> T medir(Metricas.Histograma tiempos, OperacionMedida<T> operacion) throws SQLException {
+        long inicio = System.nanoTime();
+        try {
+            return operacion.ejecutar();
+        } catch (SQLException | RuntimeException excepcion) {
+            OPERACIONES_FALLIDAS.incrementar();
+            throw excepcion;
+        } finally {
+            tiempos.registrarDesde(inicio);
+        }
+    }
+
+    /* ----------------------------------
+
+            Metodo configuracion
+
+       ----------------------------------
+     Valor de una opción de configuración, o null si no está puesta.
+     La propiedad del sistema "-Dtaskeasy.<clave>=..." tiene prioridad sobre el archivo taskeasy.properties.
+     */
+    static String configuracion(String clave) {
+        String valor = System.getProperty("taskeasy." + clave);
+        return valor != null ? valor : CONFIGURACION.getProperty(clave);
+    }
+
+    /*
+     Convierte la fila actual de un ResultSet en un objeto.
+     Solo debe leer la fila, el ResultSet lo recorre y lo cierra BaseDeDatos.
+     */
+    @FunctionalInterface
+    public interface MapeadorFila<T> {
+        T mapear(ResultSet resultSet) throws SQLException;
+    }
+
+    /*
+     Excepción sin comprobar que envuelve los SQLException que ocurren
+     mientras se recorre un Stream de consultarStream.
+     */
+    public static class ExcepcionConsulta extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public ExcepcionConsulta(SQLException causa) {
+            super(causa);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
 
 
     /*-------------------------
@@ -94,175 +235,188 @@ public class BaseDeDatos {
 
      Metodo encargado de inicializar la base de datos.
 
-     Su función principal es:
+     Su función principal es llevar el esquema a la última versión con MigracionesEsquema:
      - Crear las tablas necesarias si no existen.
-     - Añadir columnas nuevas si son necesarias (migración de base de datos).
+     - Añadir columnas e índices nuevos (migración de base de datos).
      - Insertar datos iniciales en caso de primera ejecución.
 
-     Este metodo se ejecuta UNA vez al iniciar la aplicación.
+     Si la base de datos ya está al día solo se lee PRAGMA user_version.
+     Este metodo se ejecuta UNA vez al iniciar la aplicación (Main.start): si se vuelve a llamar
+     no hace nada.
      */
-    public static void asegurarInicio() {
+    public static synchronized void asegurarInicio() {
 
-        try (
-                // Abrimos la conexión con SQLite
-                Connection conexion = DriverManager.getConnection(URL);
+        if (esquemaIniciado) return;
 
-                // Creamos un objeto Statement para ejecutar sentencias SQL simples
-                Statement stat = conexion.createStatement()
-        ) {
+        try {
+            CONEXIONES.conEscritor(conexion -> {
+                MigracionesEsquema.aplicar(conexion);
+                return null;
+            });
+            esquemaIniciado = true;
+        } catch (SQLException excepcion) {
+            Metricas.error("migraciones del esquema", excepcion);
+        }
+    }
 
-            /* -------------------------------------------
 
-                       CREACIÓN DE LA TABLA 'tareas'
 
-               -------------------------------------------
-             Esta tabla almacena todas las tareas creadas por los usuarios.
-             Usamos IF NOT EXISTS porque evita que nos dé error si la tabla ya existe
-             */
-            stat.execute("""
-                        CREATE TABLE IF NOT EXISTS tareas (
-                            id INTEGER PRIMARY KEY AUTOINCREMENT,   -- Identificador único de la tarea
-                            titulo TEXT NOT NULL,                   -- Título obligatorio
-                            descripcion TEXT,                       -- Texto opcional
-                            fecha TEXT,                             -- Fecha en formato dd/MM/yyyy
-                            estado TEXT,                            -- Estado de la tarea
-                            usuario_id INTEGER DEFAULT 0            -- Relación con el usuario
-                        );
-                    """);
-
-            /*  -------------------------------------------
-
-                     CREACIÓN DE LA TABLA 'categorias'
-
-                -------------------------------------------
-                Esta tabla permite asignar etiquetas a las tareas.
-            */
-            stat.execute("""
-            CREATE TABLE IF NOT EXISTS categorias (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                nombre TEXT NOT NULL UNIQUE,
-                color TEXT
-            );
-        """);
+    /* ----------------------
 
-            /*
-                    INSERTAR CATEGORÍAS POR DEFECTO
-                     (solo si la tabla está vacía)
-            */
-            try (ResultSet resulSet = stat.executeQuery("SELECT COUNT(*) AS total FROM categorias")) {
-                if (resulSet.next() && resulSet.getInt("total") == 0) {
-                    stat.execute("INSERT INTO categorias (nombre) VALUES ('Sin categoría');");
-                    stat.execute("INSERT INTO categorias (nombre) VALUES ('Trabajo');");
-                    stat.execute("INSERT INTO categorias (nombre) VALUES ('Personal');");
-                    stat.execute("INSERT INTO categorias (nombre) VALUES ('Urgente');");
-                    System.out.println("Categorías iniciales insertadas.");
-                }
-            }
+          Metodo ejecutar
 
+       ----------------------
+       Sirve para ejecutar sentencias INSERT, UPDATE o DELETE
+       */
+    public static void ejecutar(String sql, Object... params) throws SQLException {
 
-            /* -------------------------------------------
+        int afectadas = medir(TIEMPO_EJECUTAR, () -> CONEXIONES.conEscritor(conexion -> {
+            PreparedStatement prepstat = CONEXIONES.preparar(conexion, sql);
+            asignarParametros(prepstat, params);
+            return prepstat.executeUpdate();
+        }));
+        FILAS_ESCRITAS.sumar(afectadas);
+    }
 
-                     CREACIÓN DE LA TABLA 'usuarios'
 
-               -------------------------------------------
-             Esta tabla permite tener múltiples usuarios, cada uno con su propia lista de tareas
-             */
-            stat.execute("""
-                        CREATE TABLE IF NOT EXISTS usuarios (
-                            id INTEGER PRIMARY KEY AUTOINCREMENT,       -- Identificador de usuario
-                            nombre TEXT UNIQUE NOT NULL,                -- Nombre visible
-                            email TEXT UNIQUE NOT NULL,                 -- Email único
-                            password TEXT NOT NULL                      -- Contraseña cifrada o texto (según implementación)
-                        );
-                    """);
 
-            /* ---------------------------------------------------------------------------------
+    /* ----------------------
 
-                         AÑADIR COLUMNA id_categoria A 'tareas' SI NO EXISTE
+        Metodo ejecutarLote
 
-              ---------------------------------------------------------------------------------
-            */
-            try (ResultSet resultSet = stat.executeQuery("PRAGMA table_info(tareas);")) {
+       ----------------------
+       Ejecuta la misma sentencia (INSERT, UPDATE o DELETE) una vez por cada fila de parámetros,
+       todas en UNA sola transacción: un único commit (y un único fsync) en lugar de uno por fila.
+       Si alguna falla se deshace el lote entero y se relanza la excepción.
+       Devuelve el número total de filas afectadas.
+       */
+    public static int ejecutarLote(String sql, List<Object[]> filasParams) throws SQLException {
 
-                boolean existeIdCategoria = false;
+        if (filasParams.isEmpty()) return 0;
 
-                while (resultSet.next()) {
-                    if ("id_categoria".equalsIgnoreCase(resultSet.getString("name"))) {
-                        existeIdCategoria = true;
-                        break;
-                    }
+        int total = medir(TIEMPO_EJECUTAR_LOTE, () -> transaccion(conexion -> {
+            PreparedStatement prepstat = CONEXIONES.preparar(conexion, sql);
+            try {
+                for (Object[] params : filasParams) {
+                    asignarParametros(prepstat, params);
+                    prepstat.addBatch();
                 }
 
-                if (!existeIdCategoria) {
-                    stat.execute("ALTER TABLE tareas ADD COLUMN id_categoria INTEGER DEFAULT NULL;");
-                    System.out.println("Columna 'id_categoria' añadida correctamente a la tabla tareas.");
+                int afectadas = 0;
+                for (int filas : prepstat.executeBatch()) {
+                    if (filas > 0) afectadas += filas;
                 }
+                return afectadas;
 
+            } finally {
+                prepstat.clearBatch();
             }
+        }));
+        FILAS_ESCRITAS.sumar(total);
+        return total;
+    }
 
-            /* -------------------------------------------------------
-
-                AÑADIR COLUMNA usuario_id A 'tareas' SI NO EXISTE
-
-               -------------------------------------------------------
-             PRAGMA table_info devuelve el esquema de la tabla
-             */
-            try (ResultSet resultSet = stat.executeQuery("PRAGMA table_info(tareas);")) {
+    /* ----------------------
 
-                boolean existeIdUsuario = false;
+        Metodo enTransaccion
 
-                // Recorremos la lista de columnas existentes en la tabla
-                while (resultSet.next()) {
-                    if ("usuario_id".equalsIgnoreCase(resultSet.getString("name"))) {
-                        existeIdUsuario = true;
-                        break;
-                    }
-                }
+       ----------------------
+       Ejecuta la operación con la conexión de escritura dentro de una transacción.
+       Hace commit si termina bien y rollback si lanza una excepción.
+       */
+    public static <T> T enTransaccion(GestorConexiones.OperacionConexion<T> operacion) throws SQLException {
+        return medir(TIEMPO_TRANSACCION, () -> transaccion(operacion));
+    }
 
-                if (!existeIdUsuario) {
-                    stat.execute("ALTER TABLE tareas ADD COLUMN usuario_id INTEGER DEFAULT 0;");
-                    System.out.println("Columna 'usuario_id' añadida correctamente a la tabla tareas.");
-                }
+    /*
+     enTransaccion sin medir, para las operaciones que ya se miden por su cuenta (ejecutarLote...).
+     */
+    private static <T> T transaccion(GestorConexiones.OperacionConexion<T> operacion) throws SQLException {
+
+        return CONEXIONES.conEscritor(conexion -> {
+            boolean autoCommit = conexion.getAutoCommit();
+            conexion.setAutoCommit(false);
+            try {
+                T resultado = operacion.aplicar(conexion);
+                conexion.commit();
+                return resultado;
+
+            } catch (SQLException | RuntimeException excepcion) {
+                conexion.rollback();
+                throw excepcion;
+
+            } finally {
+                conexion.setAutoCommit(autoCommit);
             }
-
-        } catch (SQLException excepcion) {
-            excepcion.printStackTrace();
-        }
+        });
     }
 
 
 
     /* ----------------------
 
-          Metodo ejecutar
+          Metodo insertar
 
        ----------------------
-       Sirve para ejecutar sentencias INSERT, UPDATE o DELETE
+       Ejecuta un INSERT y devuelve el id (rowid) que SQLite ha asignado a la fila nueva.
+       Se lee con last_insert_rowid() en la misma conexión y sin soltar el candado de escritura,
+       así ningún otro INSERT puede colarse entre medias.
        */
-    public static void ejecutar(String sql, Object... params) throws SQLException {
+    public static int insertar(String sql, Object... params) throws SQLException {
 
-        try (
-                Connection conexion = DriverManager.getConnection(URL);
-                PreparedStatement prepstat = conexion.prepareStatement(sql)
+        int id = medir(TIEMPO_INSERTAR, () -> CONEXIONES.conEscritor(conexion -> {
+            PreparedStatement prepstat = CONEXIONES.preparar(conexion, sql);
+            asignarParametros(prepstat, params);
+            prepstat.executeUpdate();
 
-        ) {
-            DateTimeFormatter formatoFecha = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+            try (ResultSet resultSet = CONEXIONES.preparar(conexion, "SELECT last_insert_rowid()").executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }));
+        FILAS_ESCRITAS.incrementar();
+        return id;
+    }
 
-            for (int i = 0; i < params.length; i++) {
-                Object param = params[i];
 
-                if (param instanceof LocalDate) {
-                    prepstat.setString(i + 1, ((LocalDate) param).format(formatoFecha));
-                } else {
-                    prepstat.setObject(i + 1, param);
-                }
-            }
 
-            prepstat.executeUpdate();
+    /* ----------------------------
 
-        } catch (SQLException excepcion) {
-            throw excepcion;
-        }
+         Metodo insertarTareasLote
+
+       ----------------------------
+       INSERT de muchas tareas a la vez (importación) en UNA sola transacción.
+       Cada fila son los parámetros de
+           INSERT INTO tareas (titulo, descripcion, fecha, id_estado, usuario_id, id_categoria)
+
+       El trigger tareas_fts_insertar indexa cada tarea en el buscador dentro de la misma
+       transacción, así que lo que se ha importado ya se puede buscar. No se toca el esquema:
+       cualquier DDL invalida las sentencias preparadas de todas las conexiones (CacheSentencias).
+       Devuelve el número de tareas insertadas.
+       */
+    public static int insertarTareasLote(List<Object[]> filasParams) throws SQLException {
+
+        if (filasParams.isEmpty()) return 0;
+
+        int total = medir(TIEMPO_INSERTAR_LOTE, () -> transaccion(conexion -> {
+            PreparedStatement prepstat = CONEXIONES.preparar(conexion,
+                    "INSERT INTO tareas (titulo, descripcion, fecha, id_estado, usuario_id, id_categoria) VALUES (?, ?, ?, ?, ?, ?)");
+            int insertadas = 0;
+            try {
+                for (Object[] params : filasParams) {
+                    asignarParametros(prepstat, params);
+                    prepstat.addBatch();
+                }
+                for (int filas : prepstat.executeBatch()) {
+                    if (filas > 0) insertadas += filas;
+                }
+            } finally {
+                prepstat.clearBatch();
+            }
+            return insertadas;
+        }));
+        FILAS_ESCRITAS.sumar(total);
+        return total;
     }
 
 
@@ -272,72 +426,166 @@ public class BaseDeDatos {
         Metodo consultar
 
       ---------------------------
-      Ejecuta consultas SELECT y devuelve un ResultSet
-      */
-    public static ResultSet consultar(String sql, Object... params) throws SQLException {
+      Ejecuta consultas SELECT y convierte cada fila con el mapeador que se le pasa.
 
-        Connection conexion = DriverManager.getConnection(URL);
+      La conexión y el ResultSet se abren y se cierran aquí dentro (la sentencia queda
+      en la caché de la conexión), quien llama solo recibe la lista ya construida.
+      */
+    public static <T> List<T> consultar(String sql, MapeadorFila<T> mapeador, Object... params) throws SQLException {
 
-        try {
-            PreparedStatement prepstat = conexion.prepareStatement(sql);
+        List<T> filas = medir(TIEMPO_CONSULTAR, () -> CONEXIONES.conLector(conexion -> {
+            PreparedStatement prepstat = CONEXIONES.preparar(conexion, sql);
+            asignarParametros(prepstat, params);
 
-            for (int i = 0; i < params.length; i++) {
-                prepstat.setObject(i + 1, params[i]);
+            try (ResultSet resultSet = prepstat.executeQuery()) {
+                List<T> leidas = new ArrayList<>();
+                while (resultSet.next()) {
+                    leidas.add(mapeador.mapear(resultSet));
+                }
+                return leidas;
             }
+        }));
+        FILAS_LEIDAS.sumar(filas.size());
+        return filas;
+    }
 
-            return prepstat.executeQuery();
 
-        } catch (SQLException e) {
-            conexion.close();
-            throw e;
-        }
 
-    }
+    /*---------------------------
 
+        Metodo consultarStream
 
-    /* ----------------------------------
+      ---------------------------
+      Igual que consultar, pero devuelve las filas de una en una según se van leyendo,
+      sin cargarlas todas en memoria.
 
-                Metodo existe
-       ----------------------------------
-    Metodo para verificar que ese campo es único.
-    */
-    public static boolean existe(String campo, String valor) {
+      La conexión de lectura queda prestada mientras el Stream esté abierto,
+      por eso hay que usarlo SIEMPRE dentro de un try-with-resources.
+      En las métricas se mide el tiempo que el Stream ha estado abierto, hasta que se cierra.
+      */
+    public static <T> Stream<T> consultarStream(String sql, MapeadorFila<T> mapeador, Object... params) throws SQLException {
 
-        try (var conexion = DriverManager.getConnection(URL);
-             var prepStat = conexion.prepareStatement("SELECT 1 FROM usuarios WHERE " + campo + " = ? LIMIT 1")) {
+        long inicio = System.nanoTime();
+        Connection conexion = CONEXIONES.prestarLector();
+        ResultSet resultSet;
 
-            prepStat.setString(1, valor);
+        try {
+            PreparedStatement prepstat = CONEXIONES.preparar(conexion, sql);
+            asignarParametros(prepstat, params);
+            resultSet = prepstat.executeQuery();
 
-            try (var resultSet = prepStat.executeQuery()) {
-                return resultSet.next();
+        } catch (SQLException excepcion) {
+            CONEXIONES.devolverLector(conexion);
+            OPERACIONES_FALLIDAS.incrementar();
+            TIEMPO_CONSULTAR_STREAM.registrarDesde(inicio);
+            throw excepcion;
+        }
+
+        /* Filas leídas: se suman al contador al cerrar, no de una en una */
+        long[] leidas = {0};
+        Spliterator<T> filas = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> accion) {
+                try {
+                    if (!resultSet.next()) return false;
+                    leidas[0]++;
+                    accion.accept(mapeador.mapear(resultSet));
+                    return true;
+                } catch (SQLException excepcion) {
+                    OPERACIONES_FALLIDAS.incrementar();
+                    throw new ExcepcionConsulta(excepcion);
+                }
             }
+        };
+
+        return StreamSupport.stream(filas, false).onClose(() -> {
+            cerrarResultados(resultSet);
+            CONEXIONES.devolverLector(conexion);
+            FILAS_LEIDAS.sumar(leidas[0]);
+            TIEMPO_CONSULTAR_STREAM.registrarDesde(inicio);
+        });
+    }
 
-        } catch (Exception excepcion) {
-            excepcion.printStackTrace();
-            return true;
+    /*
+     Asigna los parámetros "?" de la sentencia en orden.
+     Las fechas (LocalDate) se guardan como texto ISO-8601 (yyyy-MM-dd), que se ordena
+     igual que las propias fechas y permite usar el índice para buscar por rangos.
+     Los estados (EstadoTarea) se guardan como su código entero (tareas.id_estado).
+     */
+    private static void asignarParametros(PreparedStatement prepstat, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+
+            if (param instanceof LocalDate) {
+                prepstat.setString(i + 1, param.toString());
+            } else if (param instanceof EstadoTarea estado) {
+                prepstat.setInt(i + 1, estado.codigo());
+            } else {
+                prepstat.setObject(i + 1, param);
+            }
         }
+    }
 
+    /*
+     Solo se cierra el ResultSet: la sentencia sigue guardada en la caché de la conexión.
+     */
+    private static void cerrarResultados(ResultSet resultSet) {
+        try {
+            resultSet.close();
+        } catch (SQLException excepcion) {
+            Metricas.error("cerrar ResultSet", excepcion);
+        }
     }
 
+
     /* -------------------------------------------------------
                 Obtener todas las categorías
    ------------------------------------------------------- */
-    public static java.util.List<Categoria> obtenerCategorias() {
-        java.util.List<Categoria> lista = new java.util.ArrayList<>();
-
-        try (ResultSet rs = consultar("SELECT id, nombre, color FROM categorias ORDER BY id")) {
-            while (rs.next()) {
-                lista.add(new Categoria(
-                        rs.getInt("id"),
-                        rs.getString("nombre"),
-                        rs.getString("color")
-                ));
-            }
+    public static List<Categoria> obtenerCategorias() {
+        try {
+            return consultar("SELECT id, nombre, color FROM categorias ORDER BY id",
+                    rs -> new Categoria(
+                            rs.getInt("id"),
+                            rs.getString("nombre"),
+                            rs.getString("color")
+                    ));
         } catch (Exception e) {
-            e.printStackTrace();
+            Metricas.error("leer categorías", e);
+            return new ArrayList<>();
         }
+    }
+
+    /*
+     Aciertos y fallos de la caché de sentencias preparadas.
+     */
+    public static CacheSentencias.Estadisticas estadisticasCacheSentencias() {
+        return CONEXIONES.estadisticasCache();
+    }
+
+    /*
+     Carpeta de datos: la de la base de datos y taskeasy.properties (y donde se guarda metricas.json).
+     */
+    static File carpetaDatos() {
+        return CARPETA_DATOS;
+    }
+
+    /*
+     Perfil de durabilidad con el que se abrieron las conexiones (ver PerfilDurabilidad).
+     */
+    public static PerfilDurabilidad perfilDurabilidad() {
+        return CONEXIONES.perfil();
+    }
 
-        return lista;
+    /* ----------------------------------
+
+                Metodo cerrar
+
+       ----------------------------------
+     Cierra las conexiones abiertas con la base de datos.
+     Se llama una sola vez al salir de la aplicación (Main.stop).
+     */
+    public static void cerrar() {
+        CONEXIONES.close();
     }
 
 }
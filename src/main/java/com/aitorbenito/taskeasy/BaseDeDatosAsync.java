@@ -0,0 +1,120 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports javafx
+*/
+import javafx.application.Platform;
+
+/*
+Imports java.sql y concurrencia
+*/
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/* ------------------------------------------
+
+            Clase BaseDeDatosAsync
+
+   ------------------------------------------
+ Capa asíncrona sobre BaseDeDatos para que los controladores no bloqueen
+ el hilo de JavaFX (JavaFX Application Thread) mientras esperan a SQLite.
+
+ - Cada operación se ejecuta en un hilo virtual (Java 21) y devuelve un CompletableFuture.
+ - enFx(...) entrega el resultado o el error de vuelta en el hilo de JavaFX con Platform.runLater,
+   que es el único hilo desde el que se puede tocar la interfaz.
+ */
+public final class BaseDeDatosAsync {
+
+    /*
+     Operación contra la base de datos que se ejecuta fuera del hilo de JavaFX.
+     */
+    @FunctionalInterface
+    public interface OperacionBD<T> {
+        T ejecutar() throws SQLException;
+    }
+
+    /*
+     Un hilo virtual por operación: son baratos y el pool de GestorConexiones
+     ya limita cuántas consultas llegan a SQLite a la vez.
+     */
+    private static final ExecutorService EJECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    /* Segundos que se esperan al cerrar a las operaciones que aún no han terminado */
+    private static final int ESPERA_CIERRE_SEGUNDOS = 3;
+
+    private BaseDeDatosAsync() {}
+
+    /* ----------------------------------
+
+            Metodo enSegundoPlano
+
+       ----------------------------------
+     Ejecuta cualquier operación de base de datos en segundo plano.
+     Si lanza SQLException, el futuro termina con esa excepción como causa.
+     */
+    public static <T> CompletableFuture<T> enSegundoPlano(OperacionBD<T> operacion) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return operacion.ejecutar();
+            } catch (SQLException excepcion) {
+                throw new CompletionException(excepcion);
+            }
+        }, EJECUTOR);
+    }
+
+    /*
+     Versiones asíncronas de los metodos de BaseDeDatos.
+     */
+    public static CompletableFuture<Void> ejecutar(String sql, Object... params) {
+        return enSegundoPlano(() -> {
+            BaseDeDatos.ejecutar(sql, params);
+            return null;
+        });
+    }
+
+    public static CompletableFuture<Integer> insertar(String sql, Object... params) {
+        return enSegundoPlano(() -> BaseDeDatos.insertar(sql, params));
+    }
+
+    public static <T> CompletableFuture<List<T>> consultar(String sql, BaseDeDatos.MapeadorFila<T> mapeador, Object... params) {
+        return enSegundoPlano(() -> BaseDeDatos.consultar(sql, mapeador, params));
+    }
+
+    /* ----------------------------------
+
+                Metodo enFx
+
+       ----------------------------------
+     Cuando el futuro termina, llama a alTerminar (con el resultado) o a alFallar (con la causa real
+     del error) en el hilo de JavaFX. Se usa para actualizar la interfaz con el resultado.
+     */
+    public static <T> void enFx(CompletableFuture<T> futuro, Consumer<T> alTerminar, Consumer<Throwable> alFallar) {
+        futuro.whenComplete((resultado, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                alTerminar.accept(resultado);
+            } else {
+                alFallar.accept(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        }));
+    }
+
+    /*
+     Deja de aceptar operaciones nuevas y espera un poco a que terminen las que están en curso.
+     Se llama al cerrar la aplicación, antes de BaseDeDatos.cerrar().
+     */
+    public static void cerrar() {
+        EJECUTOR.shutdown();
+        try {
+            EJECUTOR.awaitTermination(ESPERA_CIERRE_SEGUNDOS, TimeUnit.SECONDS);
+        } catch (InterruptedException excepcion) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.sql
+*/
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/*
+Imports java.util
+*/
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/* ------------------------------------------
+
+            Clase CacheSentencias
+
+   ------------------------------------------
+ Guarda las sentencias preparadas de UNA conexión, indexadas por el texto SQL,
+ para que SQLite no tenga que analizar y planificar la misma consulta en cada llamada.
+
+ - Cuando se llena, se descarta (y se cierra) la sentencia usada hace más tiempo (LRU).
+ - Cuenta aciertos y fallos en contadores compartidos por todas las conexiones.
+ - No es segura entre hilos: cada conexión la usa un solo hilo a la vez (lo garantiza GestorConexiones).
+
+ Las sentencias que devuelve NO deben cerrarse, solo sus ResultSet.
+ */
+public final class CacheSentencias implements AutoCloseable {
+
+    /*
+     Resumen de los contadores de la caché.
+     */
+    public record Estadisticas(long aciertos, long fallos) {
+        public double tasaAciertos() {
+            long total = aciertos + fallos;
+            return total == 0 ? 0 : (double) aciertos / total;
+        }
+    }
+
+    private final Connection conexion;
+    private final LongAdder aciertos;
+    private final LongAdder fallos;
+
+    /*
+     LinkedHashMap en orden de acceso: el primer elemento es siempre el menos usado.
+     */
+    private final LinkedHashMap<String, PreparedStatement> sentencias;
+
+    public CacheSentencias(Connection conexion, int capacidad, LongAdder aciertos, LongAdder fallos) {
+        this.conexion = conexion;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.sentencias = new LinkedHashMap<>(capacidad, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> masAntigua) {
+                if (size() <= capacidad) return false;
+                cerrarSilencioso(masAntigua.getValue());
+                return true;
+            }
+        };
+    }
+
+    /* ----------------------------------
+
+              Metodo preparar
+
+       ----------------------------------
+     Devuelve la sentencia preparada para ese SQL, creándola si no estaba en la caché.
+     Los parámetros de usos anteriores se limpian antes de devolverla.
+     */
+    public PreparedStatement preparar(String sql) throws SQLException {
+        PreparedStatement prepstat = sentencias.get(sql);
+
+        if (prepstat != null && !prepstat.isClosed()) {
+            aciertos.increment();
+            prepstat.clearParameters();
+            return prepstat;
+        }
+
+        fallos.increment();
+        prepstat = conexion.prepareStatement(sql);
+        sentencias.put(sql, prepstat);
+        return prepstat;
+    }
+
+    /*
+     Texto SQL de las sentencias que hay ahora en la caché.
+     Como el resto de la caché, solo con la conexión sin prestar a ningún otro hilo.
+     */
+    public Set<String> sql() {
+        return new HashSet<>(sentencias.keySet());
+    }
+
+    /*
+     Cierra todas las sentencias guardadas. Se llama antes de cerrar la conexión.
+     */
+    @Override
+    public void close() {
+        sentencias.values().forEach(CacheSentencias::cerrarSilencioso);
+        sentencias.clear();
+    }
+
+    private static void cerrarSilencioso(PreparedStatement prepstat) {
+        try {
+            prepstat.close();
+        } catch (SQLException excepcion) {
+            Metricas.error("cerrar sentencia", excepcion);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/* ---------------------------------
+
+         Clase CambioTarea
+
+   ---------------------------------
+ Describe un único cambio hecho sobre una tarea en la base de datos.
+
+ El formulario de tareas se lo pasa a la ventana principal al guardar o eliminar,
+ para que esta corrija solo esa fila de la tabla en lugar de recargarlas todas.
+ */
+public record CambioTarea(Tipo tipo, Tarea tarea) {
+
+    /*
+     Tipo de operación que se ha hecho con la tarea.
+     */
+    public enum Tipo {
+        INSERTADA,
+        ACTUALIZADA,
+        ELIMINADA
+    }
+
+    public static CambioTarea insertada(Tarea tarea) {
+        return new CambioTarea(Tipo.INSERTADA, tarea);
+    }
+
+    public static CambioTarea actualizada(Tarea tarea) {
+        return new CambioTarea(Tipo.ACTUALIZADA, tarea);
+    }
+
+    public static CambioTarea eliminada(Tarea tarea) {
+        return new CambioTarea(Tipo.ELIMINADA, tarea);
+    }
+}
@@ -0,0 +1,320 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.sql y concurrencia
+*/
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/* ------------------------------------------
+
+            Clase ColaEscrituraDiferida
+
+   ------------------------------------------
+ Modo opcional de "escritura diferida" (write-behind) para las modificaciones de tareas.
+
+ Con el modo activado, al guardar una tarea editada la tabla se actualiza al momento y el UPDATE
+ se deja en esta cola en lugar de esperar a SQLite:
+ - Si la misma tarea se edita varias veces antes de escribirse, solo se guarda la última versión.
+ - La cola se vuelca en UNA transacción (BaseDeDatos.ejecutarLote) cada INTERVALO_SEGUNDOS,
+   o en cuanto acumula MAX_PENDIENTES tareas distintas.
+ - También se vuelca al cerrar sesión y al salir de la aplicación (Main.stop).
+ - Leer las tareas NO vuelca la cola: quien lee de la base de datos (cargarTareas, buscarTareas,
+   ListaTareasPaginada) pone encima las versiones pendientes con superponer, así que la tabla
+   enseña siempre la última edición sin esperar a ningún UPDATE.
+
+ Solo se difieren las modificaciones. Las tareas nuevas necesitan el id que da la base de datos
+ y los borrados deben ser definitivos, así que esos se siguen escribiendo al momento.
+
+ QUÉ PASA SI LA APLICACIÓN SE CIERRA DE GOLPE (proceso matado, corte de luz...):
+ - Se pierden las modificaciones que aún estaban en la cola: como mucho las de los últimos
+   INTERVALO_SEGUNDOS, o MAX_PENDIENTES tareas. Las tareas quedan como estaban en el último volcado.
+ - Cada volcado es una transacción: o se escriben todas las tareas de ese volcado o ninguna.
+   La base de datos nunca queda a medias ni corrupta.
+ - Si un volcado falla, las modificaciones vuelven a la cola (salvo que haya una más nueva
+   de la misma tarea) y se reintentan en el siguiente. El primer fallo se avisa al usuario
+   (avisarFallos); no se vuelve a avisar hasta que un volcado salga bien y otro falle.
+ Al cerrar la aplicación de forma normal no se pierde nada.
+
+ Se activa con la opción "escritura_diferida = true" en taskeasy.properties
+ (o -Dtaskeasy.escritura_diferida=true). Por defecto está desactivado.
+ */
+final class ColaEscrituraDiferida {
+
+    /* Segundos como máximo que una modificación espera en la cola */
+    private static final int INTERVALO_SEGUNDOS = 2;
+
+    /* Tareas distintas en cola a partir de las cuales se vuelca sin esperar al intervalo */
+    private static final int MAX_PENDIENTES = 50;
+
+    /* Segundos que cerrar espera a que termine el volcado del temporizador que esté en marcha */
+    private static final int ESPERA_CIERRE_SEGUNDOS = 10;
+
+    private static final String SQL_ACTUALIZAR =
+            "UPDATE tareas SET titulo=?, descripcion=?, fecha=?, id_estado=?, id_categoria=? WHERE id=?";
+
+    private static final boolean ACTIVA = Boolean.parseBoolean(BaseDeDatos.configuracion("escritura_diferida"));
+
+    /* Última versión pendiente de cada tarea, por id, en el orden en que se editaron */
+    private static final Map<Integer, Tarea> PENDIENTES = new LinkedHashMap<>();
+
+    /*
+     Tareas del volcado que se está escribiendo ahora mismo. Siguen contando como pendientes
+     para superponer hasta que la transacción termina. Se protege con el candado de PENDIENTES.
+     */
+    private static Map<Integer, Tarea> enCurso = Map.of();
+
+    /* A quién avisar cuando un volcado falla (la ventana principal) y si el último volcado falló */
+    private static volatile Consumer<Exception> avisoFallo;
+    private static boolean fallando = false;
+
+    /* Solo un volcado a la vez, para que uno antiguo nunca escriba encima de uno más nuevo */
+    private static final ReentrantLock CANDADO_VOLCADO = new ReentrantLock();
+
+    /* Hilo que vuelca la cola periódicamente. Es daemon: no impide que la aplicación se cierre */
+    private static ScheduledExecutorService temporizador;
+
+    static {
+        Metricas.indicador("cola_escritura.pendientes", ColaEscrituraDiferida::pendientes);
+    }
+
+    private ColaEscrituraDiferida() {}
+
+    /*
+     true si el modo de escritura diferida está activado en la configuración.
+     */
+    static boolean activa() {
+        return ACTIVA;
+    }
+
+    /* ----------------------------------
+
+            Metodo encolar
+
+       ----------------------------------
+     Deja en la cola el UPDATE de la tarea, sustituyendo al anterior de la misma tarea si lo había.
+     No toca la base de datos: si la cola se llena, el volcado se hace en el hilo del temporizador.
+     */
+    static void encolar(Tarea tarea) {
+        boolean llena;
+        synchronized (PENDIENTES) {
+            /* remove + put: la tarea pasa al final, como la edición más reciente */
+            PENDIENTES.remove(tarea.getId());
+            PENDIENTES.put(tarea.getId(), tarea);
+            llena = PENDIENTES.size() >= MAX_PENDIENTES;
+        }
+
+        ScheduledExecutorService hilo = iniciarTemporizador();
+        if (llena) hilo.execute(ColaEscrituraDiferida::vaciarSilencioso);
+    }
+
+    /*
+     Quita de la cola la tarea (porque se va a eliminar): no tiene sentido actualizarla después.
+     */
+    static void descartar(int idTarea) {
+        synchronized (PENDIENTES) {
+            PENDIENTES.remove(idTarea);
+        }
+    }
+
+    /* ----------------------------------
+
+            Metodo instantanea
+
+       ----------------------------------
+     Copia de las versiones aún sin escribir (en cola o en el volcado en curso), por id.
+     Quien lee de la base de datos la toma ANTES de leer y se la pasa a superponer: así no se pierde
+     una versión que se escriba mientras tanto, después de que la lectura haya visto la anterior.
+     */
+    static Map<Integer, Tarea> instantanea() {
+        synchronized (PENDIENTES) {
+            if (PENDIENTES.isEmpty() && enCurso.isEmpty()) return Map.of();
+            Map<Integer, Tarea> copia = new HashMap<>(enCurso);
+            copia.putAll(PENDIENTES);
+            return copia;
+        }
+    }
+
+    /* ----------------------------------
+
+            Metodo superponer
+
+       ----------------------------------
+     Devuelve "tareas" (recién leídas de la base de datos) con las versiones pendientes encima:
+     las de "antes" (instantanea tomada antes de leer) y las que haya ahora, que son más nuevas.
+     Una tarea cuya versión pendiente ya no cumple "acepta" (el filtro de la tabla) se quita;
+     con acepta a null se sustituye sin quitar ninguna (páginas de ListaTareasPaginada).
+     */
+    static List<Tarea> superponer(List<Tarea> tareas, Map<Integer, Tarea> antes, Predicate<Tarea> acepta) {
+        Map<Integer, Tarea> versiones = new HashMap<>(antes);
+        versiones.putAll(instantanea());
+        if (versiones.isEmpty()) return tareas;
+
+        List<Tarea> resultado = new ArrayList<>(tareas.size());
+        for (Tarea tarea : tareas) {
+            Tarea pendiente = versiones.get(tarea.getId());
+            if (pendiente == null) {
+                resultado.add(tarea);
+            } else if (acepta == null || acepta.test(pendiente)) {
+                resultado.add(pendiente);
+            }
+        }
+        return resultado;
+    }
+
+    /* ----------------------------------
+
+              Metodo vaciar
+
+       ----------------------------------
+     Escribe ahora todas las modificaciones pendientes en una sola transacción.
+     Es bloqueante: desde la interfaz se llama en segundo plano.
+     Si falla, las devuelve a la cola y relanza la excepción.
+     */
+    static void vaciar() throws SQLException {
+        CANDADO_VOLCADO.lock();
+        try {
+            Map<Integer, Tarea> lote;
+            synchronized (PENDIENTES) {
+                if (PENDIENTES.isEmpty()) return;
+                lote = new LinkedHashMap<>(PENDIENTES);
+                enCurso = lote;
+                PENDIENTES.clear();
+            }
+
+            List<Object[]> parametros = new ArrayList<>(lote.size());
+            for (Tarea tarea : lote.values()) {
+                parametros.add(new Object[]{
+                        tarea.getTitulo(), tarea.getDescripcion(), tarea.getFecha(), tarea.getEstado(),
+                        tarea.getIdCategoria() > 0 ? tarea.getIdCategoria() : null, tarea.getId()
+                });
+            }
+
+            try {
+                BaseDeDatos.ejecutarLote(SQL_ACTUALIZAR, parametros);
+
+            } catch (SQLException | RuntimeException excepcion) {
+                /* La transacción se ha deshecho: lo devolvemos a la cola sin pisar ediciones más nuevas */
+                synchronized (PENDIENTES) {
+                    Map<Integer, Tarea> nuevas = new LinkedHashMap<>(PENDIENTES);
+                    PENDIENTES.clear();
+                    PENDIENTES.putAll(lote);
+                    PENDIENTES.putAll(nuevas);
+                }
+                throw excepcion;
+
+            } finally {
+                synchronized (PENDIENTES) {
+                    enCurso = Map.of();
+                }
+            }
+        } finally {
+            CANDADO_VOLCADO.unlock();
+        }
+    }
+
+    /*
+     Igual que vaciar, pero no lanza el error: lo registra y, si es el primero desde el último
+     volcado correcto, avisa a avisarFallos. Lo usan el temporizador y el cierre de sesión.
+     Devuelve true si la cola ha quedado escrita.
+     */
+    static boolean vaciarSilencioso() {
+        try {
+            vaciar();
+            synchronized (ColaEscrituraDiferida.class) {
+                fallando = false;
+            }
+            return true;
+
+        } catch (SQLException | RuntimeException excepcion) {
+            Metricas.error("vaciar cola de escritura", excepcion);
+            boolean primerFallo;
+            synchronized (ColaEscrituraDiferida.class) {
+                primerFallo = !fallando;
+                fallando = true;
+            }
+            Consumer<Exception> aviso = avisoFallo;
+            if (primerFallo && aviso != null) aviso.accept(excepcion);
+            return false;
+        }
+    }
+
+    /*
+     Registra a quién avisar cuando un volcado falla, o null para no avisar a nadie.
+     Se llama desde el hilo que vuelca (no el de JavaFX), así que el aviso tiene que pasar
+     él mismo a la interfaz. Quien se registra aún no sabe nada de los fallos anteriores:
+     se le avisa con el siguiente, aunque la cola ya estuviera fallando.
+     */
+    static synchronized void avisarFallos(Consumer<Exception> aviso) {
+        avisoFallo = aviso;
+        if (aviso != null) fallando = false;
+    }
+
+    /*
+     Número de tareas con modificaciones aún sin escribir.
+     */
+    static int pendientes() {
+        synchronized (PENDIENTES) {
+            return PENDIENTES.size();
+        }
+    }
+
+    /* ----------------------------------
+
+              Metodo cerrar
+
+       ----------------------------------
+     Para el temporizador y hace el último volcado. Se llama al salir (Main.stop),
+     antes de cerrar las conexiones. El temporizador no se interrumpe: si está volcando,
+     se espera a que termine su transacción y después se vuelca lo que quede.
+     Si ese volcado falla, lo que quedaba en la cola se pierde: devuelve cuántas tareas
+     se han quedado sin guardar, para que Main.stop avise al usuario.
+     */
+    static int cerrar() {
+        ScheduledExecutorService hilo;
+        synchronized (ColaEscrituraDiferida.class) {
+            hilo = temporizador;
+            temporizador = null;
+        }
+        if (hilo != null) {
+            hilo.shutdown();
+            try {
+                hilo.awaitTermination(ESPERA_CIERRE_SEGUNDOS, TimeUnit.SECONDS);
+            } catch (InterruptedException excepcion) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /* Al salir ya no hay ventana principal a la que avisar: el aviso lo da Main.stop */
+        avisoFallo = null;
+        vaciarSilencioso();
+        return pendientes();
+    }
+
+    /*
+     El temporizador se crea con la primera modificación encolada.
+     */
+    private static synchronized ScheduledExecutorService iniciarTemporizador() {
+        if (temporizador == null) {
+            temporizador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "taskeasy-escritura-diferida");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            temporizador.scheduleWithFixedDelay(ColaEscrituraDiferida::vaciarSilencioso,
+                    INTERVALO_SEGUNDOS, INTERVALO_SEGUNDOS, TimeUnit.SECONDS);
+        }
+        return temporizador;
+    }
+}
@@ -0,0 +1,271 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.sql y java.time
+*/
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/*
+Imports java.util
+*/
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/* ------------------------------------------
+
+            Clase ConsultasTareas
+
+   ------------------------------------------
+ Consultas de lectura sobre la tabla 'tareas' de un usuario.
+
+ Todas filtran por usuario_id y ordenan por fecha, así SQLite las resuelve con el índice
+ (usuario_id, fecha): las de rango de fechas son búsquedas por rango dentro del índice,
+ sin recorrer todas las tareas. Las fechas se guardan en ISO-8601 y las tareas sin fecha
+ tienen NULL, que nunca entra en un rango.
+
+ Son bloqueantes: desde la interfaz se llaman con BaseDeDatosAsync.enSegundoPlano(...).
+ */
+final class ConsultasTareas {
+
+    private static final String SELECT_TAREAS =
+            "SELECT id, titulo, descripcion, fecha, id_estado, id_categoria FROM tareas WHERE usuario_id = ?";
+
+    /*
+     Orden total de las tareas: por fecha (las que no tienen van primero) y, a igual fecha, por id.
+     Lo da directamente el índice (usuario_id, fecha), que incluye el id (rowid) al final.
+     */
+    private static final String ORDEN = " ORDER BY fecha ASC, id ASC";
+
+    /*
+     Posición de una tarea dentro de ese orden. Se usa como ancla de la paginación por clave
+     (keyset): la página siguiente empieza justo después de la última clave de la anterior.
+     */
+    record Clave(LocalDate fecha, int id) {
+        static Clave de(Tarea tarea) {
+            return new Clave(tarea.getFecha(), tarea.getId());
+        }
+    }
+
+    /*
+     Columnas por las que se puede ordenar recorrer(...), con su expresión SQL.
+     Solo se aceptan estas: el ORDER BY nunca lleva texto que venga de fuera.
+     La categoría se ordena por nombre, como en la tabla, y las tareas sin categoría como "Sin categoría".
+     */
+    enum ColumnaOrden {
+        TITULO("titulo"),
+        DESCRIPCION("descripcion"),
+        FECHA("fecha"),
+        ESTADO("id_estado"),
+        CATEGORIA("COALESCE((SELECT nombre FROM categorias WHERE categorias.id = tareas.id_categoria), '"
+                + RegistroCategorias.SIN_CATEGORIA + "')");
+
+        private final String sql;
+
+        ColumnaOrden(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /*
+     Un criterio de ordenación: columna y sentido
+     */
+    record Orden(ColumnaOrden columna, boolean ascendente) {}
+
+    private ConsultasTareas() {}
+
+    /*
+     Todas las tareas del usuario (las que no tienen fecha van primero).
+     */
+    static List<Tarea> deUsuario(int usuarioId) throws SQLException {
+        return deUsuario(usuarioId, FiltroTareas.NINGUNO);
+    }
+
+    /*
+     Las tareas del usuario que cumplen el filtro, en el mismo orden.
+     */
+    static List<Tarea> deUsuario(int usuarioId, FiltroTareas filtro) throws SQLException {
+        return BaseDeDatos.consultar(SELECT_TAREAS + filtro.sql("") + ORDEN,
+                Tarea::desdeFila, parametros(usuarioId, filtro));
+    }
+
+    /*
+     Tareas con fecha límite entre desde y hasta (ambas incluidas).
+     */
+    static List<Tarea> entreFechas(int usuarioId, LocalDate desde, LocalDate hasta) throws SQLException {
+        return BaseDeDatos.consultar(SELECT_TAREAS + " AND fecha BETWEEN ? AND ?" + ORDEN,
+                Tarea::desdeFila, usuarioId, desde, hasta);
+    }
+
+    /*
+     Tareas sin completar cuya fecha límite ya ha pasado.
+     */
+    static List<Tarea> vencidas(int usuarioId, LocalDate hoy) throws SQLException {
+        return BaseDeDatos.consultar(SELECT_TAREAS + " AND fecha < ? AND id_estado <> ?" + ORDEN,
+                Tarea::desdeFila, usuarioId, hoy, EstadoTarea.COMPLETADA);
+    }
+
+    /*
+     Tareas que vencen en la semana de hoy (de lunes a domingo).
+     */
+    static List<Tarea> vencenEstaSemana(int usuarioId, LocalDate hoy) throws SQLException {
+        return entreFechas(usuarioId,
+                hoy.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                hoy.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY)));
+    }
+
+    /* ----------------------------------
+
+                Metodo buscar
+
+       ----------------------------------
+     Tareas del usuario cuyo título o descripción contienen todas las palabras del texto
+     (la última también como prefijo, para buscar mientras se escribe), de la más a la menos relevante.
+
+     Se busca en el índice FTS5 'tareas_fts' (migración 4) y se ordena por bm25, que puntúa
+     más alto las palabras poco frecuentes; el título pesa el doble que la descripción y
+     la columna usuario_id no cuenta (peso 0). El usuario también se filtra dentro del índice
+     ("usuario_id : 3 AND ..."), así solo se leen de 'tareas' las que son suyas.
+     CROSS JOIN obliga a SQLite a recorrer primero el índice FTS5 y luego buscar cada tarea por id:
+     al revés (todas las tareas del usuario y un MATCH por cada una) tarda minutos con 100.000 tareas.
+     Devuelve como máximo "limite" tareas. Si el texto no tiene ninguna palabra, devuelve una lista vacía.
+     */
+    static List<Tarea> buscar(int usuarioId, String texto, FiltroTareas filtro, int limite) throws SQLException {
+        String palabras = consultaFts(texto);
+        if (palabras.isEmpty()) return List.of();
+
+        String consulta = "usuario_id : \"" + usuarioId + "\" AND {titulo descripcion} : (" + palabras + ")";
+
+        return BaseDeDatos.consultar(
+                "SELECT t.id, t.titulo, t.descripcion, t.fecha, t.id_estado, t.id_categoria"
+                        + " FROM tareas_fts CROSS JOIN tareas t ON t.id = tareas_fts.rowid"
+                        + " WHERE tareas_fts MATCH ?" + filtro.sql("t.")
+                        + " ORDER BY bm25(tareas_fts, 2.0, 1.0, 0.0) LIMIT ?",
+                Tarea::desdeFila, parametros(consulta, filtro, limite));
+    }
+
+    /*
+     Convierte lo que escribe el usuario en una consulta FTS5 segura:
+     se quedan solo las letras y números (los símbolos separan palabras), cada palabra va
+     entre comillas (así OR, NOT o NEAR no se interpretan como operadores)
+     y la última lleva * para que también valga como prefijo.
+     "informe tri" → "informe" "tri"*
+     */
+    static String consultaFts(String texto) {
+        if (texto == null) return "";
+
+        String[] palabras = texto.trim().split("[^\\p{L}\\p{N}]+");
+        StringBuilder consulta = new StringBuilder();
+        for (String palabra : palabras) {
+            if (palabra.isEmpty()) continue;
+            if (!consulta.isEmpty()) consulta.append(' ');
+            consulta.append('"').append(palabra).append('"');
+        }
+        if (!consulta.isEmpty()) consulta.append('*');
+        return consulta.toString();
+    }
+
+    /*
+     Número de tareas del usuario que cumplen el filtro. Sin filtro, o filtrando solo por un campo
+     con índice, se cuenta sobre el índice sin leer las filas.
+     */
+    static int contar(int usuarioId, FiltroTareas filtro) throws SQLException {
+        return BaseDeDatos.consultar("SELECT COUNT(*) FROM tareas WHERE usuario_id = ?" + filtro.sql(""),
+                resultSet -> resultSet.getInt(1), parametros(usuarioId, filtro)).get(0);
+    }
+
+    /*
+     Clave de la tarea que ocupa esa posición (empezando en 0), o null si no hay tantas.
+     Solo se usa al saltar a una página cuya anterior no se ha cargado nunca: recorre
+     el índice hasta esa posición pero sin leer las filas de la tabla.
+     */
+    static Clave claveEn(int usuarioId, FiltroTareas filtro, int posicion) throws SQLException {
+        List<Clave> claves = BaseDeDatos.consultar(
+                "SELECT fecha, id FROM tareas WHERE usuario_id = ?" + filtro.sql("") + ORDEN + " LIMIT 1 OFFSET ?",
+                resultSet -> {
+                    String fecha = resultSet.getString("fecha");
+                    return new Clave(fecha != null ? LocalDate.parse(fecha) : null, resultSet.getInt("id"));
+                },
+                parametros(usuarioId, filtro, posicion));
+        return claves.isEmpty() ? null : claves.get(0);
+    }
+
+    /* ----------------------------------
+
+                Metodo pagina
+
+       ----------------------------------
+     Devuelve como máximo "limite" tareas que cumplen el filtro y van justo después de la clave indicada
+     (o desde el principio si es null). El coste no depende de lo lejos que esté la página,
+     porque SQLite empieza a leer el índice directamente en la clave.
+
+     Las tareas sin fecha (NULL) no se pueden comparar con (fecha, id) > (?, ?),
+     así que si la clave no tiene fecha se piden primero las que quedan sin fecha y luego las demás.
+     */
+    static List<Tarea> pagina(int usuarioId, FiltroTareas filtro, Clave despuesDe, int limite) throws SQLException {
+
+        String select = SELECT_TAREAS + filtro.sql("");
+
+        if (despuesDe == null) {
+            return BaseDeDatos.consultar(select + ORDEN + " LIMIT ?",
+                    Tarea::desdeFila, parametros(usuarioId, filtro, limite));
+        }
+
+        if (despuesDe.fecha() != null) {
+            return BaseDeDatos.consultar(select + " AND (fecha, id) > (?, ?)" + ORDEN + " LIMIT ?",
+                    Tarea::desdeFila, parametros(usuarioId, filtro, despuesDe.fecha(), despuesDe.id(), limite));
+        }
+
+        List<Tarea> tareas = new ArrayList<>(BaseDeDatos.consultar(
+                select + " AND fecha IS NULL AND id > ?" + ORDEN + " LIMIT ?",
+                Tarea::desdeFila, parametros(usuarioId, filtro, despuesDe.id(), limite)));
+
+        if (tareas.size() < limite) {
+            tareas.addAll(BaseDeDatos.consultar(
+                    select + " AND fecha IS NOT NULL" + ORDEN + " LIMIT ?",
+                    Tarea::desdeFila, parametros(usuarioId, filtro, limite - tareas.size())));
+        }
+        return tareas;
+    }
+
+    /* ----------------------------------
+
+               Metodo recorrer
+
+       ----------------------------------
+     Todas las tareas del usuario que cumplen el filtro, en el orden indicado (o en el normal,
+     por fecha, si la lista está vacía), leídas de una en una con BaseDeDatos.consultarStream:
+     un cursor que solo avanza, sin cargar la lista en memoria. Se usa para exportar.
+     El Stream tiene prestada una conexión de lectura: siempre dentro de un try-with-resources.
+     */
+    static Stream<Tarea> recorrer(int usuarioId, FiltroTareas filtro, List<Orden> orden) throws SQLException {
+        StringBuilder orderBy = new StringBuilder();
+        for (Orden criterio : orden) {
+            orderBy.append(orderBy.isEmpty() ? " ORDER BY " : ", ")
+                    .append(criterio.columna().sql)
+                    .append(criterio.ascendente() ? " ASC" : " DESC");
+        }
+        /* A igualdad, por id: el mismo orden siempre que se exporte */
+        String ordenSql = orderBy.isEmpty() ? ORDEN : orderBy + ", id ASC";
+
+        return BaseDeDatos.consultarStream(SELECT_TAREAS + filtro.sql("") + ordenSql,
+                Tarea::desdeFila, parametros(usuarioId, filtro));
+    }
+
+    /*
+     Parámetros de una consulta en el orden en que aparecen los "?":
+     primero el del usuario (o el texto buscado), luego los del filtro y al final el resto.
+     */
+    private static Object[] parametros(Object primero, FiltroTareas filtro, Object... resto) {
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(primero);
+        parametros.addAll(filtro.parametros());
+        parametros.addAll(Arrays.asList(resto));
+        return parametros.toArray();
+    }
+}
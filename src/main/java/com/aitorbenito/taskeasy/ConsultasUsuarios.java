@@ -0,0 +1,208 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports sqlite-jdbc, para reconocer los errores de restricciones
+*/
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+/*
+Imports java.sql y java.util
+*/
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/* ------------------------------------------
+
+            Clase ConsultasUsuarios
+
+   ------------------------------------------
+ Consultas sobre la tabla 'usuarios'.
+
+ Están aquí y no en los controladores para que la misma consulta la usen
+ la ventana de login y los benchmarks de la carpeta "benchmarks".
+
+ Son bloqueantes: desde la interfaz se llaman con BaseDeDatosAsync.enSegundoPlano(...),
+ o con loginEnSegundoPlano(...) en el caso del login.
+ */
+final class ConsultasUsuarios {
+
+    /*
+     Datos del usuario que devuelve el login
+     */
+    record Usuario(int id, String nombre) {}
+
+    /*
+     Resultado del registro de un usuario nuevo
+     */
+    enum ResultadoRegistro { CREADA, EMAIL_EN_USO, NOMBRE_EN_USO }
+
+    /*
+     Usuario candidato del login, con el valor guardado en 'password' (hash o contraseña antigua en claro)
+     */
+    record Credenciales(int id, String nombre, String password) {}
+
+    /*
+     Una búsqueda por cada índice único (email y nombre) unidas con UNION, en lugar de un OR
+     entre las dos columnas. La contraseña ya no está en el WHERE: se comprueba después con el hash.
+     */
+    private static final String BUSCAR_CREDENCIALES =
+            "SELECT id, nombre, password FROM usuarios WHERE email = ?"
+                    + " UNION SELECT id, nombre, password FROM usuarios WHERE nombre = ?";
+
+    private ConsultasUsuarios() {}
+
+    /* ----------------------------------
+
+          Metodo buscarCredenciales
+
+       ----------------------------------
+     Usuarios cuyo email o nombre es "usuarioOEmail": ninguno, uno o, como mucho,
+     dos (el email de uno coincide con el nombre de otro).
+     */
+    static List<Credenciales> buscarCredenciales(String usuarioOEmail) throws SQLException {
+        return BaseDeDatos.consultar(
+                BUSCAR_CREDENCIALES,
+                resultSet -> new Credenciales(resultSet.getInt("id"), resultSet.getString("nombre"), resultSet.getString("password")),
+                usuarioOEmail, usuarioOEmail
+        );
+    }
+
+    /* ----------------------------------
+
+                Metodo login
+
+       ----------------------------------
+     Usuario cuyo email o nombre es "usuarioOEmail" y cuya contraseña coincide, o vacío si no hay ninguno.
+     Si la contraseña guardada estaba en claro (o con otro coste), se guarda ya con el hash nuevo.
+     Es bloqueante y hace el hash en el hilo que lo llama; la interfaz usa loginEnSegundoPlano.
+     */
+    static Optional<Usuario> login(String usuarioOEmail, String password) throws SQLException {
+        Verificacion verificacion = verificar(buscarCredenciales(usuarioOEmail), password);
+        return guardarHashNuevo(verificacion);
+    }
+
+    /* ----------------------------------
+
+          Metodo loginEnSegundoPlano
+
+       ----------------------------------
+     Lo mismo que login, repartido entre los dos ejecutores:
+     - La búsqueda y el UPDATE del hash nuevo, en los hilos de BaseDeDatosAsync.
+     - La verificación y el hash nuevo (PBKDF2, lo que más tarda), en los de HashContrasenas.
+     Así un login no ocupa la base de datos mientras calcula ni la CPU mientras espera a SQLite.
+     */
+    static CompletableFuture<Optional<Usuario>> loginEnSegundoPlano(String usuarioOEmail, String password) {
+        return BaseDeDatosAsync.enSegundoPlano(() -> buscarCredenciales(usuarioOEmail))
+                .thenCompose(candidatos -> HashContrasenas.enSegundoPlano(() -> verificar(candidatos, password)))
+                .thenCompose(verificacion -> BaseDeDatosAsync.enSegundoPlano(() -> guardarHashNuevo(verificacion)));
+    }
+
+    /*
+     Resultado de verificar: el candidato cuya contraseña coincide (o null)
+     y, si su fila la tenía en claro o con otro coste, el hash nuevo que hay que guardar (o null).
+     */
+    private record Verificacion(Credenciales valido, String hashNuevo) {}
+
+    /*
+     Primer candidato cuya contraseña coincide. Sin candidatos se hace igualmente un hash
+     para que el tiempo de respuesta no delate si el usuario existe.
+     */
+    private static Verificacion verificar(List<Credenciales> candidatos, String password) {
+        if (candidatos.isEmpty()) {
+            HashContrasenas.verificarFicticio(password);
+            return new Verificacion(null, null);
+        }
+        for (Credenciales candidato : candidatos) {
+            if (HashContrasenas.verificar(password, candidato.password())) {
+                String hashNuevo = HashContrasenas.necesitaRehash(candidato.password()) ? HashContrasenas.hash(password) : null;
+                return new Verificacion(candidato, hashNuevo);
+            }
+        }
+        return new Verificacion(null, null);
+    }
+
+    /*
+     Guarda el hash nuevo, si lo hay, y devuelve el usuario del login.
+     El WHERE incluye el valor antiguo: si otro login ya lo ha actualizado, no se pisa.
+     */
+    private static Optional<Usuario> guardarHashNuevo(Verificacion verificacion) throws SQLException {
+        Credenciales valido = verificacion.valido();
+        if (valido == null) return Optional.empty();
+
+        if (verificacion.hashNuevo() != null) {
+            BaseDeDatos.ejecutar(
+                    "UPDATE usuarios SET password = ? WHERE id = ? AND password = ?",
+                    verificacion.hashNuevo(), valido.id(), valido.password()
+            );
+        }
+        return Optional.of(new Usuario(valido.id(), valido.nombre()));
+    }
+
+    /* ----------------------------------
+
+               Metodo registrar
+
+       ----------------------------------
+     Crea el usuario con un solo INSERT, sin comprobar antes si el email o el nombre existen:
+     de eso se encargan las restricciones UNIQUE de la tabla, dentro de la misma sentencia,
+     así dos registros a la vez con el mismo nombre nunca pueden colarse los dos.
+     Si salta una de ellas, se devuelve cuál en lugar de la excepción (restriccionIncumplida).
+
+     "hashPassword" es el hash ya calculado (HashContrasenas.hash), para no hacerlo
+     mientras se tiene la conexión de escritura.
+     */
+    static ResultadoRegistro registrar(String email, String nombre, String hashPassword) throws SQLException {
+        try {
+            BaseDeDatos.ejecutar(
+                    "INSERT INTO usuarios (nombre, email, password) VALUES (?, ?, ?)",
+                    nombre, email, hashPassword
+            );
+        } catch (SQLiteException excepcion) {
+            ResultadoRegistro enUso = restriccionIncumplida(excepcion, email, nombre);
+            if (enUso == null) throw excepcion;
+            DisponibilidadUsuarios.anotar(enUso == ResultadoRegistro.EMAIL_EN_USO ? email : null,
+                    enUso == ResultadoRegistro.NOMBRE_EN_USO ? nombre : null);
+            return enUso;
+        }
+        DisponibilidadUsuarios.anotar(email, nombre);
+        return ResultadoRegistro.CREADA;
+    }
+
+    /* ----------------------------------
+
+          Metodo registrarEnSegundoPlano
+
+       ----------------------------------
+     Lo mismo que registrar, con el hash de la contraseña en los hilos de HashContrasenas
+     y el INSERT en los de BaseDeDatosAsync.
+     */
+    static CompletableFuture<ResultadoRegistro> registrarEnSegundoPlano(String email, String nombre, String password) {
+        return HashContrasenas.enSegundoPlano(() -> HashContrasenas.hash(password))
+                .thenCompose(hash -> BaseDeDatosAsync.enSegundoPlano(() -> registrar(email, nombre, hash)));
+    }
+
+    /*
+     EMAIL_EN_USO o NOMBRE_EN_USO según la restricción UNIQUE que ha saltado, o null si el error es otro.
+     El texto del error depende de la versión de SQLite y del driver, así que no se lee: se pregunta
+     a la tabla, por los dos índices únicos, si ya existe el email o el nombre. Solo pasa en un
+     registro rechazado, así que esta consulta de más no cuesta nada en el caso normal.
+     */
+    private static ResultadoRegistro restriccionIncumplida(SQLiteException excepcion, String email, String nombre)
+            throws SQLException {
+        if (excepcion.getResultCode() != SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE
+                && excepcion.getResultCode() != SQLiteErrorCode.SQLITE_CONSTRAINT) return null;
+
+        List<ResultadoRegistro> enUso = BaseDeDatos.consultar(
+                "SELECT EXISTS (SELECT 1 FROM usuarios WHERE email = ?), EXISTS (SELECT 1 FROM usuarios WHERE nombre = ?)",
+                resultSet -> resultSet.getBoolean(1) ? ResultadoRegistro.EMAIL_EN_USO
+                        : resultSet.getBoolean(2) ? ResultadoRegistro.NOMBRE_EN_USO
+                        : null,
+                email, nombre
+        );
+        return enUso.isEmpty() ? null : enUso.get(0);
+    }
+}
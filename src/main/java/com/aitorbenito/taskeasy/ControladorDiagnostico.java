@@ -0,0 +1,147 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports javaFX
+*/
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/*
+Imports java.nio y java.util
+*/
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/* ----------------------------------
+
+      Clase ControladorDiagnostico
+
+   ----------------------------------
+   Controlador de la ventana de diagnóstico (diagnostico.fxml), que se abre desde Ayuda → Diagnóstico.
+   Enseña las métricas de Metricas y los últimos errores, y las vuelve a leer cada segundo
+   mientras la ventana está abierta.
+   */
+public class ControladorDiagnostico {
+
+    /* Una fila de la tabla, ya con el texto de cada columna */
+    private record Fila(String nombre, String tipo, String valor,
+                        String media, String p50, String p90, String p99, String maximo) {}
+
+    @FXML private TableView<Fila> tablaMetricas;
+    @FXML private TableColumn<Fila, String> colNombre;
+    @FXML private TableColumn<Fila, String> colTipo;
+    @FXML private TableColumn<Fila, String> colValor;
+    @FXML private TableColumn<Fila, String> colMedia;
+    @FXML private TableColumn<Fila, String> colP50;
+    @FXML private TableColumn<Fila, String> colP90;
+    @FXML private TableColumn<Fila, String> colP99;
+    @FXML private TableColumn<Fila, String> colMaximo;
+    @FXML private Label lblErrores;
+    @FXML private ListView<String> listaErrores;
+    @FXML private Label lblEstado;
+
+    /* Relectura de las métricas cada segundo, solo mientras la ventana se ve */
+    private final Timeline actualizacion = new Timeline(new KeyFrame(Duration.seconds(1), evento -> actualizar()));
+
+    /* ----------------------------------
+
+               Metodo initialize
+
+       ---------------------------------- */
+    @FXML
+    private void initialize() {
+        columna(colNombre, Fila::nombre);
+        columna(colTipo, Fila::tipo);
+        columna(colValor, Fila::valor);
+        columna(colMedia, Fila::media);
+        columna(colP50, Fila::p50);
+        columna(colP90, Fila::p90);
+        columna(colP99, Fila::p99);
+        columna(colMaximo, Fila::maximo);
+
+        actualizacion.setCycleCount(Timeline.INDEFINITE);
+        actualizar();
+    }
+
+    /*
+     Actualiza las métricas cada segundo mientras la ventana "escenario" esté abierta.
+     Lo llama ControladorPrincipal al crear la ventana.
+     */
+    void actualizarMientrasAbierta(Stage escenario) {
+        escenario.setOnShown(evento -> {
+            actualizar();
+            actualizacion.play();
+        });
+        escenario.setOnHidden(evento -> actualizacion.stop());
+    }
+
+    private static void columna(TableColumn<Fila, String> columna, Function<Fila, String> valor) {
+        columna.setCellValueFactory(datos -> new SimpleStringProperty(valor.apply(datos.getValue())));
+    }
+
+    /*
+     Vuelve a leer todas las métricas y los últimos errores.
+     */
+    private void actualizar() {
+        List<Fila> filas = new ArrayList<>();
+        for (Map.Entry<String, Metricas.Resumen> entrada : Metricas.histogramas().entrySet()) {
+            Metricas.Resumen resumen = entrada.getValue();
+            filas.add(new Fila(entrada.getKey(), "tiempo", String.format("%,d", resumen.recuento()),
+                    milis(resumen.media()), milis(resumen.p50()), milis(resumen.p90()),
+                    milis(resumen.p99()), milis(resumen.maximo())));
+        }
+        Metricas.contadores().forEach((nombre, valor) ->
+                filas.add(new Fila(nombre, "contador", String.format("%,d", valor), "", "", "", "", "")));
+        Metricas.indicadores().forEach((nombre, valor) ->
+                filas.add(new Fila(nombre, "indicador", String.format("%,d", valor), "", "", "", "", "")));
+        for (PerfilArranque.Fase fase : PerfilArranque.fases()) {
+            filas.add(new Fila("arranque: " + fase.nombre(), "arranque", "", "", "", "", "", milis(fase.nanos() / 1e6)));
+        }
+        tablaMetricas.getItems().setAll(filas);
+
+        List<String> errores = new ArrayList<>();
+        for (Metricas.ErrorRegistrado error : Metricas.ultimosErrores().reversed()) {
+            errores.add(error.fechaTexto() + "  [" + error.origen() + "]  " + error.mensaje());
+        }
+        listaErrores.getItems().setAll(errores);
+        lblErrores.setText("Últimos errores (" + errores.size() + ")");
+    }
+
+    private static String milis(double valor) {
+        return String.format(Locale.ROOT, "%.3f", valor);
+    }
+
+    /* ---- Botones ---- */
+
+    @FXML
+    private void copiarJson() {
+        ClipboardContent contenido = new ClipboardContent();
+        contenido.putString(Metricas.json());
+        Clipboard.getSystemClipboard().setContent(contenido);
+        lblEstado.setText("Métricas copiadas al portapapeles en JSON.");
+    }
+
+    @FXML
+    private void guardarJson() {
+        Path archivo = Metricas.volcar();
+        lblEstado.setText(archivo != null ? "Guardado en " + archivo : "No se pudo guardar metricas.json.");
+    }
+
+    @FXML
+    private void cerrar() {
+        Stage escenario = (Stage) tablaMetricas.getScene().getWindow();
+        escenario.close();
+    }
+}
@@ -15,14 +15,11 @@ Imports java.time
 
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-
 
 /*
-Imports SQL
+Imports java.util
 */
-import java.sql.SQLException;
-import com.aitorbenito.taskeasy.Categoria;
+import java.util.function.Consumer;
 
 
 public class ControladorFormularioTareas {
@@ -36,7 +33,7 @@ public class ControladorFormularioTareas {
     /* Selector Fecha*/
     @FXML private DatePicker dpFecha;
     /* Selector del Estado de la tarea*/
-    @FXML private ChoiceBox<String> cbEstado;
+    @FXML private ChoiceBox<EstadoTarea> cbEstado;
     /* Título de la ventana que nos muestra*/
     @FXML private Label tituloVentana;
     /* Botón eliminar*/
@@ -44,11 +41,19 @@ public class ControladorFormularioTareas {
     /* Selector de categorías*/
     @FXML
     private ComboBox<Categoria> comboCategoria;
+    /* Indicador de progreso mientras se guarda*/
+    @FXML private ProgressIndicator indicadorCarga;
 
 
 
     private Tarea tareaActual = null; // Almacena la tarea si estamos en modo edición (null en modo creación).
-    private final DateTimeFormatter formatoFecha = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    /*
+     Número de veces que se ha abierto (configurado) el formulario. La ventana se reutiliza, así que
+     un guardado que termina cuando el usuario ya ha cerrado y vuelto a abrir el formulario
+     no debe cerrar ni tocar la nueva apertura.
+     */
+    private int apertura = 0;
 
 
 
@@ -57,8 +62,9 @@ public class ControladorFormularioTareas {
        Callback para la actualización de la tabla principal
 
        ----------------------------------------------------
-       MainController inyecta aquí su metodo cargarTareas(); para que el formulario lo ejecute al finalizar*/
-    private Runnable onSaveCallback;
+       MainController inyecta aquí su metodo aplicarCambio(); para que el formulario le diga
+       exactamente qué tarea se ha insertado, actualizado o eliminado al finalizar*/
+    private Consumer<CambioTarea> onSaveCallback;
 
 
 
@@ -67,21 +73,29 @@ public class ControladorFormularioTareas {
                     Metodo configurar
 
        ----------------------------------------------------
-       Es el metodo de inicialización llamado por el MainController y que define el modo de trabajo: Crear (tarea == null) o Editar*/
-    public void configurar(Tarea tarea, Runnable callback) {
+       Es el metodo de inicialización llamado por el MainController y que define el modo de trabajo: Crear (tarea == null) o Editar.
+       La misma ventana se reutiliza en cada apertura, así que aquí se vacían todos los campos de la anterior.*/
+    public void configurar(Tarea tarea, Consumer<CambioTarea> callback) {
         this.tareaActual = tarea;
         this.onSaveCallback = callback;
+        apertura++;
+
+        txtTitulo.clear();
+        txtDescripcion.clear();
+        dpFecha.setValue(null);
+        btnEliminar.setVisible(true);
+        mostrarCargando(false);
 
         // ---------------------------------------------
-        // Cargar categorías desde la base de datos
+        // Cargar categorías desde el registro en memoria
         // ---------------------------------------------
-        comboCategoria.getItems().setAll(BaseDeDatos.obtenerCategorias());
+        comboCategoria.getItems().setAll(RegistroCategorias.todas());
         comboCategoria.getSelectionModel().selectFirst();
         // Evita que se pueda escribir una fecha directamente, asi forzamos el uso del selector
         dpFecha.setEditable(false);
 
         // Opciones disponibles para el estado de la tarea que estamos creando
-        cbEstado.getItems().setAll("Sin estado definido", "Pendiente", "En curso", "Completada");
+        cbEstado.getItems().setAll(EstadoTarea.values());
 
         if (tarea == null) {
             // CREAR NUEVA TAREA
@@ -89,7 +103,7 @@ public class ControladorFormularioTareas {
             //Ocultamos el botón de eliminar al crear una nueva tarea porque no tiene sentido tenerlo.
             btnEliminar.setVisible(false);
             /*El estado por defecto de una tarea es sin estado definido, puesto que puede ser solo una nota...*/
-            cbEstado.setValue("Sin estado definido");
+            cbEstado.setValue(EstadoTarea.SIN_ESTADO);
 
         } else {
             /*EDITAR TAREA*/
@@ -98,30 +112,13 @@ public class ControladorFormularioTareas {
             txtTitulo.setText(tarea.getTitulo());
             txtDescripcion.setText(tarea.getDescripcion());
 
-            /*Manejo y parseo de la fecha (si existe)*/
-            if (tarea.getFecha() != null && !tarea.getFecha().equals("Sin fecha establecida")) {
-                try {
-                    // Mapeo inverso: String (BD) → LocalDate (UI)
-                    dpFecha.setValue(LocalDate.parse(tarea.getFecha(), formatoFecha));
-                    /*Captura de excepcion con la fecha*/
-                } catch (Exception e) {
-                    System.err.println("Advertencia: No se pudo parsear la fecha de la tarea ID: " + tarea.getId());
-                    // El DatePicker queda vacío.
-                }
-            }
+            /*La fecha ya llega como LocalDate (o null si no tiene), el DatePicker queda vacío en ese caso*/
+            dpFecha.setValue(tarea.getFecha());
 
             /*
-                Validamos el estado de la tarea
+                El estado ya llega como EstadoTarea: una tarea sin estado es SIN_ESTADO ("Sin estado definido")
             */
-            String estadoBD = tarea.getEstado();
-            if (estadoBD != null && cbEstado.getItems().contains(estadoBD)) {
-                cbEstado.setValue(estadoBD);
-            } else {
-                /*
-                Se define como estado por defecto "Sin estado definido" para evitar problemas
-                en la selección del estado y por si el usuario no quiere que tenga estado la tarea.*/
-                cbEstado.setValue("Sin estado definido");
-            }
+            cbEstado.setValue(tarea.getEstado());
 
             /*
                   Seleccionar categoría correcta
@@ -151,7 +148,7 @@ public class ControladorFormularioTareas {
         String titulo = txtTitulo.getText().trim();
         String descripcion = txtDescripcion.getText().trim();
         LocalDate fecha = dpFecha.getValue();
-        String estado = cbEstado.getValue();
+        EstadoTarea estado = cbEstado.getValue();
         // Obtener la categoría seleccionada
         Categoria categoria = comboCategoria.getValue();
         Integer idCategoria = (categoria != null) ? categoria.getId() : null;
@@ -163,39 +160,64 @@ public class ControladorFormularioTareas {
         }
 
         // **Validación 2: Estado obligatorio (aunque el choicebox por defecto ya ayuda).
-        if (estado == null || estado.isEmpty()) {
+        if (estado == null) {
             alert("Error", "Debes seleccionar un estado para la tarea.");
             return;
         }
 
-        // Mapeo: LocalDate (UI) → String (BD)
-        String fechaTexto = (fecha == null) ? "Sin fecha establecida" : fecha.format(formatoFecha);
-
-        try {
-            if (tareaActual == null) {
-                // Insercion de nueva tarea
-                BaseDeDatos.ejecutar(
-                        "INSERT INTO tareas (titulo, descripcion, fecha, estado, usuario_id) VALUES (?, ?, ?, ?, ?)",
-                        titulo, descripcion, fechaTexto, estado, SesionUsuario.getUsuarioActual()
-                );
-
-            } else {
-                // UPDATE EXISTENTE
-                // Se utiliza el ID de la tarea para saber qué registro actualizar.
-                BaseDeDatos.ejecutar(
-                        "UPDATE tareas SET titulo=?, descripcion=?, fecha=?, estado=?, id_categoria=? WHERE id=?",
-                        titulo, descripcion, fechaTexto, estado, idCategoria, tareaActual.getId()
-                );
-            }
-
-            // **Callback**: Ejecuta el metodo de retorno (ej. `cargarTareas` del MainController)
-            if (onSaveCallback != null) onSaveCallback.run();
+        /*
+         Tarea actual y usuario se copian aquí: la operación en segundo plano no debe leer la interfaz.
+         */
+        Tarea editada = tareaActual;
+        int usuarioId = SesionUsuario.getUsuarioActual();
+        int aperturaGuardado = apertura;
+
+        /*
+         Con la escritura diferida activada, una modificación no espera a la base de datos:
+         se actualiza la tabla, se deja el UPDATE en la cola y se cierra el formulario.
+         */
+        if (editada != null && ColaEscrituraDiferida.activa()) {
+            Tarea actualizada = new Tarea(editada.getId(), titulo, descripcion, fecha, estado, idCategoria);
+            ColaEscrituraDiferida.encolar(actualizada);
+            if (onSaveCallback != null) onSaveCallback.accept(CambioTarea.actualizada(actualizada));
             cerrar();
-
-        } catch (SQLException excepcion) {
-            alert("Error", "No se pudo guardar la tarea.");
-            excepcion.printStackTrace();
+            return;
         }
+
+        mostrarCargando(true);
+        BaseDeDatosAsync.enFx(
+                BaseDeDatosAsync.enSegundoPlano(() -> {
+                    if (editada == null) {
+                        // Insercion de nueva tarea, nos quedamos con el id que le asigna la base de datos
+                        int id = BaseDeDatos.insertar(
+                                "INSERT INTO tareas (titulo, descripcion, fecha, id_estado, usuario_id, id_categoria) VALUES (?, ?, ?, ?, ?, ?)",
+                                titulo, descripcion, fecha, estado, usuarioId, idCategoria
+                        );
+                        return CambioTarea.insertada(new Tarea(id, titulo, descripcion, fecha, estado, idCategoria));
+                    }
+
+                    // UPDATE EXISTENTE
+                    // Se utiliza el ID de la tarea para saber qué registro actualizar.
+                    BaseDeDatos.ejecutar(
+                            "UPDATE tareas SET titulo=?, descripcion=?, fecha=?, id_estado=?, id_categoria=? WHERE id=?",
+                            titulo, descripcion, fecha, estado, idCategoria, editada.getId()
+                    );
+                    return CambioTarea.actualizada(new Tarea(editada.getId(), titulo, descripcion, fecha, estado, idCategoria));
+                }),
+                cambio -> {
+                    // **Callback**: Le pasa el cambio a la ventana principal (ej. `aplicarCambio` del MainController)
+                    if (onSaveCallback != null) onSaveCallback.accept(cambio);
+                    if (aperturaGuardado != apertura) return;
+                    mostrarCargando(false);
+                    cerrar();
+                },
+                error -> {
+                    Metricas.error("guardar tarea", error);
+                    if (aperturaGuardado != apertura) return;
+                    mostrarCargando(false);
+                    alert("Error", "No se pudo guardar la tarea.");
+                }
+        );
     }
 
 
@@ -220,18 +242,38 @@ public class ControladorFormularioTareas {
         // Si el usuario no pulsa OK, aborta la eliminación.
         if (aviso.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
             return;
-        } try {
-            // **DELETE**
-            BaseDeDatos.ejecutar("DELETE FROM tareas WHERE id=?", tareaActual.getId());
+        }
 
-            // Ejecuta el callback y cierra.
-            if (onSaveCallback != null) onSaveCallback.run();
-            cerrar();
+        // **DELETE** en segundo plano
+        Tarea eliminada = tareaActual;
+        int aperturaBorrado = apertura;
+        ColaEscrituraDiferida.descartar(eliminada.getId());
+        mostrarCargando(true);
+        BaseDeDatosAsync.enFx(
+                BaseDeDatosAsync.ejecutar("DELETE FROM tareas WHERE id=?", eliminada.getId()),
+                sinResultado -> {
+                    // Ejecuta el callback y cierra.
+                    if (onSaveCallback != null) onSaveCallback.accept(CambioTarea.eliminada(eliminada));
+                    if (aperturaBorrado != apertura) return;
+                    mostrarCargando(false);
+                    cerrar();
+                },
+                error -> {
+                    Metricas.error("eliminar tarea", error);
+                    if (aperturaBorrado != apertura) return;
+                    mostrarCargando(false);
+                    alert("Error", "No se pudo eliminar la tarea.");
+                }
+        );
+    }
 
-        } catch (SQLException excepcion) {
-            alert("Error", "No se pudo eliminar la tarea.");
-            excepcion.printStackTrace();
-        }
+    /*
+     Muestra el indicador de progreso y bloquea los botones mientras se guarda o se elimina.
+     */
+    private void mostrarCargando(boolean cargando) {
+        indicadorCarga.setVisible(cargando);
+        btnGuardar.setDisable(cargando);
+        btnEliminar.setDisable(cargando);
     }
 
     /* ----------------------------------------------------
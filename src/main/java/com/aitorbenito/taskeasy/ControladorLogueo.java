@@ -10,12 +10,6 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 
-/*
-Imports java.sql
-*/
-import java.sql.ResultSet;
-import java.sql.SQLException;
-
 /* ------------------------------------------
 
             Clase ControladorLogueo
@@ -36,6 +30,7 @@ public class ControladorLogueo {
     @FXML private TextField txtUsuario;
     @FXML private PasswordField txtContraseña;
     @FXML private Button btnLogeo;
+    @FXML private ProgressIndicator indicadorCarga;
 
 
     /* ----------------------
@@ -63,60 +58,79 @@ public class ControladorLogueo {
         }
         /*
         En caso de que los datos no estén vacíos:
-        - Hace una consulta a la base de datos
-        - Verifica por email y nombre de usuario en el primer campo
-        - Verifica la contraseña en el segundo campo
+        - Hace una consulta a la base de datos en segundo plano (sin congelar la ventana)
+        - Busca por email y nombre de usuario en el primer campo
+        - Verifica la contraseña del segundo campo con su hash (HashContrasenas), también fuera de este hilo
+        El login está en ConsultasUsuarios y devuelve el usuario (id y nombre) si existe
         */
-        try (ResultSet resulset = BaseDeDatos.consultar(
-                "SELECT * FROM usuarios WHERE (email = ? OR nombre = ?) AND password = ?",
-                userInput, userInput, password
-        )) {
-            /*
-            Si las credenciales son correctas pasa a la siguiente línea
-            */
-            if (resulset.next()) {
+        mostrarCargando(true);
+        BaseDeDatosAsync.enFx(
+                ConsultasUsuarios.loginEnSegundoPlano(userInput, password),
+                usuario -> {
+                    mostrarCargando(false);
+                    /*
+                    Si las credenciales son correctas pasa a la siguiente línea
+                    */
+                    if (usuario.isPresent()) {
+                        iniciarSesion(usuario.get());
+
+                    /*
+                    En caso de que no encuentre coincidencia con los datos introducidos
+                    por pantalla con los usuarios que hay en la base de datos,
+                    devuelve un mensaje de aviso
+                    */
+                    } else {
+                        mostrarAvisos("Error", "Credenciales incorrectas.");
+                    }
+                },
                 /*
-                Si nos hemos logueado correctamente devuelve el ID del user
+                Aquí he metido el control de errores por si hubiera alguna otra excepción
+                que no estuviese controlada, por ejemplo algún error con la base de datos.
                 */
-                int idUsuario = resulset.getInt("id");
+                error -> {
+                    mostrarCargando(false);
+                    Metricas.error("login", error);
+                    mostrarAvisos("Error", "Error inesperado al iniciar sesión.");
+                }
+        );
+    }
 
-                /*
-                Iniciamos la sesion del usuario con ese ID concreto
-                */
-                SesionUsuario.setUsuarioActual(idUsuario);
+    /* ----------------------------
 
-                /*
-                Nos devuelve un mensaje de bienvenida con el nombre del user que se ha logueado
-                */
-                mostrarAvisos("Bienvenido",
-                        "Has iniciado sesión como: " + resulset.getString("nombre"));
+           Metodo iniciarSesion
 
-                /*
-                Cerramos la ventana del login
-                */
-                cerrarVentana();
-                /*
-                Abrimos la ventana del Main, que es la principal de la app
-                */
-                Main.abrirMain();
+       ----------------------------
+     Se llama en el hilo de JavaFX cuando la consulta ha encontrado al usuario.
+     */
+    private void iniciarSesion(ConsultasUsuarios.Usuario usuario) {
+        /*
+        Iniciamos la sesion del usuario con ese ID concreto
+        */
+        SesionUsuario.setUsuarioActual(usuario.id());
 
-                /*
-                En caso de que no encuentre coincidencia con los datos introducidos
-                por pantalla con los usuarios que hay en la base de datos,
-                devuelve un mensaje de aviso
-                */
-            } else {
-                mostrarAvisos("Error", "Credenciales incorrectas.");
-            }
-
-            /*
-            Aquí he metido un catch por si hubiera alguna otra excepción
-            que no estuviese controlada, por ejemplo algún error con la base de datos.
-            */
-        } catch (SQLException e) {
-            e.printStackTrace();
-            mostrarAvisos("Error", "Error inesperado al iniciar sesión.");
-        }
+        /*
+        Nos devuelve un mensaje de bienvenida con el nombre del user que se ha logueado
+        */
+        mostrarAvisos("Bienvenido",
+                "Has iniciado sesión como: " + usuario.nombre());
+
+        /*
+        Cerramos la ventana del login
+        */
+        cerrarVentana();
+        /*
+        Abrimos la ventana del Main, que es la principal de la app
+        */
+        Main.abrirMain();
+    }
+
+    /*
+     Muestra el indicador de progreso y bloquea los botones mientras la consulta está en curso.
+     */
+    private void mostrarCargando(boolean cargando) {
+        indicadorCarga.setVisible(cargando);
+        btnLogeo.setDisable(cargando);
+        btnRegister.setDisable(cargando);
     }
 
 
@@ -148,7 +162,7 @@ public class ControladorLogueo {
 
             /*Capturamos las excepciones que puedan salir*/
         } catch (Exception excepcion) {
-            excepcion.printStackTrace();
+            Metricas.error("abrir registro", excepcion);
         }
     }
 
@@ -1,23 +1,31 @@
 /*Creado por Aitor Benito Heras "ExInDer"*/
 package com.aitorbenito.taskeasy;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.css.PseudoClass;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.time.format.DateTimeFormatter;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 /* ----------------------------------
 
@@ -33,8 +41,8 @@ public class ControladorPrincipal {
     @FXML private TableView<Tarea> tablaTareas;
     @FXML private TableColumn<Tarea, String> colTitulo;
     @FXML private TableColumn<Tarea, String> colDescripcion;
-    @FXML private TableColumn<Tarea, String> colFecha;
-    @FXML private TableColumn<Tarea, String> colEstado;
+    @FXML private TableColumn<Tarea, LocalDate> colFecha;
+    @FXML private TableColumn<Tarea, EstadoTarea> colEstado;
     @FXML private TableColumn<Tarea, String> colCategoria;
 
 
@@ -42,12 +50,91 @@ public class ControladorPrincipal {
 
     @FXML private HBox contLeyenda;
 
+    /* Buscador y filtros de la parte superior */
+    @FXML private TextField txtBuscar;
+    @FXML private ComboBox<String> cbFiltroEstado;
+    @FXML private ComboBox<Categoria> cbFiltroCategoria;
+    @FXML private DatePicker dpFiltroDesde;
+    @FXML private DatePicker dpFiltroHasta;
+
+    /* Indicador de progreso que se muestra encima de la tabla mientras se consulta la base de datos. */
+    @FXML private ProgressIndicator indicadorCarga;
+
+    /*
+     Barra de progreso de la importación de tareas
+     */
+    @FXML private HBox barraImportacion;
+    @FXML private ProgressBar progresoImportacion;
+    @FXML private Label lblImportacion;
+    private ImportadorTareas.Importacion importacion = null;
+
+    /*
+     Barra de progreso de la exportación de tareas, y la exportación en curso (null si no hay)
+     */
+    @FXML private HBox barraExportacion;
+    @FXML private ProgressBar progresoExportacion;
+    @FXML private Label lblExportacion;
+    private ExportadorTareas.Exportacion exportacion = null;
+
+    /* Errores de la importación que se enseñan al terminar (el resto solo se cuentan) */
+    private static final int ERRORES_IMPORTACION_VISIBLES = 10;
+
+    /* Operaciones de base de datos en curso, y número de la última recarga pedida. */
+    private int operacionesEnCurso = 0;
+    private int cargaActual = 0;
+
     /* Estructura de datos crucial: Lista que se enlaza al TableView (Data Binding).
        ObservableList permite que la tabla se actualice automáticamente al cambiar la lista. */
     private final ObservableList<Tarea> listaTareas = FXCollections.observableArrayList();
 
-    /* Formateador de fecha reutilizable. */
-    private final DateTimeFormatter dTimeFormat = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    /* Lista por páginas que se usa en lugar de listaTareas cuando el usuario tiene muchas tareas (null si no). */
+    private ListaTareasPaginada listaPaginada;
+
+    /* A partir de cuántas tareas no se cargan todas en memoria y se pasa a la carga por páginas. */
+    private static final int UMBRAL_PAGINADO = 5_000;
+
+    /* Filtro activo de la tabla. Se aplica en la consulta SQL, también al buscar y en la lista por páginas. */
+    private FiltroTareas filtro = FiltroTareas.NINGUNO;
+
+    /* Primera opción de los selectores de filtro, que significa "sin filtrar". */
+    private static final String TODOS_LOS_ESTADOS = "Todos los estados";
+
+    /*
+     Estados CSS de filas y celdas. Los colores están en temaClaro.css / temaOscuro.css:
+     al reciclar una fila solo se activa o desactiva un estado, sin generar ni volver a leer
+     un texto de estilo (setStyle) en cada updateItem mientras se hace scroll.
+     PSEUDO_ESTADOS va por código de EstadoTarea: ":estado-pendiente", ":estado-en-curso"...
+     */
+    private static final PseudoClass[] PSEUDO_ESTADOS = pseudoClasesEstados();
+    private static final PseudoClass PSEUDO_SIN_FECHA = PseudoClass.getPseudoClass("sin-fecha");
+    private static final Categoria TODAS_LAS_CATEGORIAS = new Categoria(0, "Todas las categorías", null);
+
+    /* Lo que tarda en llenarse la tabla al recargar y al buscar (ver Metricas) */
+    private static final Metricas.Histograma TIEMPO_RECARGA = Metricas.histograma("tabla.recarga");
+    private static final Metricas.Histograma TIEMPO_BUSQUEDA = Metricas.histograma("tabla.busqueda");
+
+    /* Resultados que se muestran como máximo en una búsqueda, ordenados por relevancia. */
+    private static final int MAX_RESULTADOS_BUSQUEDA = 200;
+
+    /*
+     Espera desde la última tecla antes de buscar: mientras se escribe seguido no se lanza
+     una consulta por cada letra, solo una cuando se para de escribir.
+     */
+    private final PauseTransition esperaBusqueda = new PauseTransition(Duration.millis(250));
+
+    /* Mismo orden que "ORDER BY fecha ASC" en SQLite: las tareas sin fecha (NULL) van primero. */
+    private static final Comparator<Tarea> ORDEN_FECHA =
+            Comparator.comparing(Tarea::getFecha, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /*
+     Ventana del formulario de tareas y su controlador. Se crean la primera vez que se abre
+     y después se reutilizan: cada apertura solo vuelve a configurar los campos, sin leer otra vez el FXML.
+     */
+    private Stage escenarioFormulario;
+    private ControladorFormularioTareas controladorFormulario;
+
+    /* Ventana de diagnóstico (Ayuda → Diagnóstico), null hasta que se abre por primera vez */
+    private Stage escenarioDiagnostico;
 
     /* --------------------------------
 
@@ -58,7 +145,9 @@ public class ControladorPrincipal {
        Se usa para:
        - Configurar el 'Data Binding' de las columnas.
        - Aplicar estilos y *callbacks* (doble clic, colores).
-       - Cargar los datos iniciales.
+
+       Puede ejecutarse fuera del hilo de JavaFX (PrecargaVistas carga main.fxml durante el login),
+       así que aquí no se toca la sesión ni se cargan tareas: eso lo hace cargarDatosIniciales().
     */
     @FXML
     public void initialize() {
@@ -74,43 +163,33 @@ public class ControladorPrincipal {
 
         /*
                  Configuración de la columna Categoría
+                 El nombre se busca en el registro en memoria, sin consultar la base de datos por cada celda.
         */
-        colCategoria.setCellValueFactory(cellData -> {
-            int idCat = cellData.getValue().getIdCategoria();
-
-            Categoria categoria = BaseDeDatos.obtenerCategorias()
-                    .stream()
-                    .filter(c -> c.getId() == idCat)
-                    .findFirst()
-                    .orElse(null);
-
-            return new SimpleStringProperty(
-                    categoria != null ? categoria.getNombre() : "Sin categoría"
-            );
-        });
+        colCategoria.setCellValueFactory(cellData -> new SimpleStringProperty(
+                RegistroCategorias.nombreDe(cellData.getValue().getIdCategoria())
+        ));
 
         /*
         Configuración de la columna de la fecha
+        La columna guarda LocalDate, así al ordenar por ella se ordena por fecha y no por el texto.
         */
-        colFecha.setCellFactory(column -> new TableCell<Tarea, String>() {
+        colFecha.setCellFactory(column -> new TableCell<Tarea, LocalDate>() {
             @Override
-            protected void updateItem(String fecha, boolean empty) {
+            protected void updateItem(LocalDate fecha, boolean empty) {
                 super.updateItem(fecha, empty);
 
                 if (empty) {
                     // Si la fila está vacía (no hay tarea), no ponemos texto.
                     setText(null);
                     setGraphic(null);
-                    setStyle(""); // Limpiar cualquier estilo remanente
-                } else if (fecha == null || fecha.trim().isEmpty()) {
-                    // Lógica para el caso de TAREA con FECHA vacía/no establecida.
+                } else if (fecha == null) {
+                    // Lógica para el caso de TAREA con FECHA vacía/no establecida (gris y cursiva por CSS).
                     setText("Sin fecha establecida");
-                    setStyle("-fx-text-fill: gray; -fx-font-style: italic;");
                 } else {
-                    // Mostrar la fecha normal.
-                    setText(fecha);
-                    setStyle("");
+                    // Mostrar la fecha normal, con el formato dd/MM/yyyy.
+                    setText(Tarea.formatearFecha(fecha));
                 }
+                pseudoClassStateChanged(PSEUDO_SIN_FECHA, !empty && fecha == null);
             }
         });
 
@@ -123,21 +202,28 @@ public class ControladorPrincipal {
         */
         tablaTareas.setPlaceholder(new Label("No hay tareas disponibles. Usa el botón + Nueva Tarea"));
 
-        /*
-         Se asegura de que la estructura de la DB exista.
-        */
-        BaseDeDatos.asegurarInicio();
-
-
-        /* ------------------------------------------------------------
-
-                           CARGAR TAREAS EN LA TABLA
+        tablaTareas.setItems(listaTareas);
 
-           ------------------------------------------------------------
-        */
-        cargarTareas();
+        /*
+         Buscador: cada cambio del texto reinicia la espera, y al terminar se busca.
+         */
+        esperaBusqueda.setOnFinished(evento -> buscarTareas());
+        txtBuscar.textProperty().addListener((observable, antes, ahora) -> esperaBusqueda.playFromStart());
 
-        tablaTareas.setItems(listaTareas);
+        /*
+         Filtros: al cambiar cualquiera se vuelve a consultar con el filtro nuevo.
+         */
+        cbFiltroEstado.getItems().setAll(TODOS_LOS_ESTADOS);
+        for (EstadoTarea estado : EstadoTarea.values()) cbFiltroEstado.getItems().add(estado.nombre());
+        cbFiltroEstado.setValue(TODOS_LOS_ESTADOS);
+        cbFiltroCategoria.getItems().setAll(TODAS_LAS_CATEGORIAS);
+        cbFiltroCategoria.getItems().addAll(RegistroCategorias.todas());
+        cbFiltroCategoria.setValue(TODAS_LAS_CATEGORIAS);
+
+        cbFiltroEstado.valueProperty().addListener((observable, antes, ahora) -> aplicarFiltro());
+        cbFiltroCategoria.valueProperty().addListener((observable, antes, ahora) -> aplicarFiltro());
+        dpFiltroDesde.valueProperty().addListener((observable, antes, ahora) -> aplicarFiltro());
+        dpFiltroHasta.valueProperty().addListener((observable, antes, ahora) -> aplicarFiltro());
 
         /* ------------------------------------------------------------
 
@@ -151,35 +237,15 @@ public class ControladorPrincipal {
                 protected void updateItem(Tarea item, boolean empty) {
                     super.updateItem(item, empty);
 
-                    if (item == null || empty) {
-                        /* Limpiar estilo si no hay datos en la fila*/
-                        setStyle("");
-                    } else {
-                        /* Aplica un color de fondo diferente a la fila según el estado de la tarea*/
-                        String estado = item.getEstado();
-
-                        /* Protección contra estados nulos que podrían causar un error*/
-                        if (estado == null) {
-                            estado = "sin estado";
-                        }
-
-                        /*
-                        Uso de "switch" para aplicar estilos CSS dependiendo del estado que tenga la tarea
-                        */
-                        switch (estado.toLowerCase()) {
-                            case "completada":
-                                setStyle("-fx-background-color: #b6f7b0;"); // Verde
-                                break;
-                            case "pendiente":
-                                setStyle("-fx-background-color: #fff4a3;"); // Amarillo
-                                break;
-                            case "en curso":
-                                setStyle("-fx-background-color: #cfe3ff;"); // Azul
-                                break;
-                            default:
-                                setStyle("-fx-background-color: #ffd4a3;"); // Naranja suave
-                                break;
-                        }
+                    /*
+                    Aplica un color de fondo diferente a la fila según el estado de la tarea:
+                    se activa solo el estado CSS de su EstadoTarea (el color lo pone el tema).
+                    Una fila vacía, o la fila "Cargando…" del modo paginado, no tiene ninguno.
+                    */
+                    int codigo = item == null || empty || item == ListaTareasPaginada.FILA_PENDIENTE
+                            ? -1 : item.getEstado().codigo();
+                    for (int i = 0; i < PSEUDO_ESTADOS.length; i++) {
+                        pseudoClassStateChanged(PSEUDO_ESTADOS[i], i == codigo);
                     }
                 }
             };
@@ -193,7 +259,7 @@ public class ControladorPrincipal {
             Si se hace doble clic en una fila, abre el formulario para editar.
             */
             fila.setOnMouseClicked(event -> {
-                if (event.getClickCount() == 2 && !fila.isEmpty()) {
+                if (event.getClickCount() == 2 && !fila.isEmpty() && fila.getItem() != ListaTareasPaginada.FILA_PENDIENTE) {
                     abrirFormularioTarea(fila.getItem());
                 }
             });
@@ -207,6 +273,27 @@ public class ControladorPrincipal {
         crearLeyendaColorInferior();
     }
 
+    /* ------------------------------------------------------------
+
+                       CARGAR TAREAS EN LA TABLA
+
+       ------------------------------------------------------------
+     Main.abrirMain lo llama en el hilo de JavaFX, con el usuario ya en SesionUsuario,
+     justo antes de mostrar la ventana. El esquema de la base de datos ya lo dejó al día Main.start.
+     */
+    public void cargarDatosIniciales() {
+        /*
+         Si la cola de escritura diferida no consigue guardar las modificaciones, se avisa al usuario.
+         Se registra aquí y no en initialize: una ventana precargada que no se llega a mostrar
+         no debe quitarle el aviso a la que está abierta. cerrarSesion lo quita.
+         Llega desde el hilo que vuelca la cola: el aviso se pasa al de JavaFX.
+         */
+        ColaEscrituraDiferida.avisarFallos(error -> Platform.runLater(() -> mostrarAlerta("Error al guardar",
+                "No se han podido guardar las últimas modificaciones de tareas:\n" + error.getMessage()
+                        + "\n\nSe seguirá intentando. Si cierras la aplicación ahora, esas modificaciones se perderán.")));
+        cargarTareas();
+    }
+
     /* ----------------------------------------------------
 
                    Metodo abrirFormularioTarea
@@ -215,34 +302,38 @@ public class ControladorPrincipal {
 
        Metodo utilizado para abrir la ventana de edicion y creacion de tareas del TaskForm.fxml
        Implementa el patrón de Diseño Modal, bloqueando la ventana principal.
-       Pasa el metodo "cargarTareas" para que el TaskFormController lo llame al guardar,
-       actualizando la tabla automáticamente.
+       Pasa el metodo "aplicarCambio" para que el TaskFormController lo llame al guardar,
+       actualizando solo la fila que ha cambiado.
     */
     private void abrirFormularioTarea(Tarea tarea) {
+        long inicio = System.nanoTime();
         try {
-            FXMLLoader cargadorFXML = new FXMLLoader(getClass().getResource("/view/formularioTareas.fxml"));
-            Parent root = cargadorFXML.load();
+            if (escenarioFormulario == null) {
+                /* Primera vez: se recoge el formulario precargado durante el login (o se carga ahora) */
+                PrecargaVistas.Vista<ControladorFormularioTareas> vista = PrecargaVistas.formulario();
+                controladorFormulario = vista.controlador();
 
-            // Obtenemos el controlador del formulario.
-            ControladorFormularioTareas controlador = cargadorFXML.getController();
+                Stage escenario = new Stage();
+                /*
+                APPLICATION_MODAL bloquea la interacción con la ventana principal,
+                para que no podamos abrir otra tarea mientras creamos o editamos una existente
+                */
+                escenario.initModality(Modality.APPLICATION_MODAL);
+                escenario.setResizable(false);
+                escenario.setScene(new Scene(vista.raiz()));
+                escenarioFormulario = escenario;
+            }
 
             // Inyectamos la tarea a editar, pero si es null, es una nueva tarea
-            controlador.configurar(tarea, this::cargarTareas);
+            controladorFormulario.configurar(tarea, this::aplicarCambio);
 
-            /*Abre un nuevo escenario*/
-            Stage escenario = new Stage();
-            /*
-            APPLICATION_MODAL bloquea la interacción con la ventana principal,
-            para que no podamos abrir otra tarea mientras creamos o editamos una existente
-            */
-            escenario.initModality(Modality.APPLICATION_MODAL);
-            escenario.setResizable(false);
-            escenario.setTitle(tarea == null ? "Nueva tarea" : "Editar tarea");
-            escenario.setScene(new Scene(root));
-            escenario.show();
+            escenarioFormulario.setTitle(tarea == null ? "Nueva tarea" : "Editar tarea");
+            escenarioFormulario.show();
+            /* La primera vez incluye recoger (o cargar) formularioTareas.fxml; las demás, solo configurarlo */
+            Metricas.histograma("ventana.formulario_tarea").registrarDesde(inicio);
 
         } catch (Exception excepcion) {
-            excepcion.printStackTrace();
+            Metricas.error("abrir formulario de tarea", excepcion);
             mostrarAlerta("Error", "No se pudo abrir la ventana de edición.");
         }
     }
@@ -292,6 +383,8 @@ public class ControladorPrincipal {
 
         // Si solo hay una seleccionada, abre el formulario.
         Tarea seleccionada = seleccionadas.get(0);
+        // Una fila que aún se está cargando no se puede editar.
+        if (seleccionada == ListaTareasPaginada.FILA_PENDIENTE) return;
         abrirFormularioTarea(seleccionada);
     }
 
@@ -303,7 +396,7 @@ public class ControladorPrincipal {
        ---------------------------------------------------- */
 
     @FXML
-    private void eliminarTarea() throws SQLException {
+    private void eliminarTarea() {
         ObservableList<Tarea> seleccionadas = tablaTareas.getSelectionModel().getSelectedItems();
 
         if (seleccionadas.isEmpty()) {
@@ -321,16 +414,129 @@ public class ControladorPrincipal {
         if (confirmar.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
 
         /*
-        Itera sobre las seleccionadas y llama al metodo DAO "BaseDeDatos.ejecutar" para eliminarlas una a una.
+        Copiamos la selección, porque al quitar filas de la tabla la selección cambia.
+         */
+        List<Tarea> aEliminar = seleccionadas.stream()
+                .filter(tarea -> tarea != ListaTareasPaginada.FILA_PENDIENTE)
+                .toList();
+        if (aEliminar.isEmpty()) return;
+
+        /*
+        En segundo plano, las elimina todas con "BaseDeDatos.ejecutarLote": un solo DELETE preparado
+        ejecutado por lotes en una única transacción. O se borran todas o no se borra ninguna.
          */
-        for (Tarea tarea : seleccionadas) {
-            BaseDeDatos.ejecutar("DELETE FROM tareas WHERE id = ?", tarea.getId());
+        List<Object[]> ids = aEliminar.stream()
+                .map(tarea -> new Object[]{tarea.getId()})
+                .toList();
+        aEliminar.forEach(tarea -> ColaEscrituraDiferida.descartar(tarea.getId()));
+
+        mostrarCargando(true);
+        BaseDeDatosAsync.enFx(
+                BaseDeDatosAsync.enSegundoPlano(() -> BaseDeDatos.ejecutarLote("DELETE FROM tareas WHERE id = ?", ids)),
+                /*
+                Una vez eliminadas, las quitamos de la tabla sin recargarla entera.
+                 */
+                eliminadas -> {
+                    mostrarCargando(false);
+                    if (listaPaginada != null) {
+                        /* En la lista por páginas basta con una recarga para todas */
+                        listaPaginada.recargar();
+                        return;
+                    }
+                    for (Tarea tarea : aEliminar) {
+                        aplicarCambio(CambioTarea.eliminada(tarea));
+                    }
+                },
+                /*
+                Si algo falla, la transacción se deshace y no se ha borrado ninguna.
+                 */
+                error -> {
+                    mostrarCargando(false);
+                    Metricas.error("eliminar tareas", error);
+                    mostrarAlerta("Error", "No se pudieron eliminar las tareas seleccionadas. No se ha borrado ninguna.");
+                }
+        );
+    }
+
+    /* ----------------------------------------------------
+
+                       Metodo aplicarCambio
+
+       ----------------------------------------------------
+       Corrige en la lista solo la tarea que ha cambiado, sin volver a consultar la base de datos.
+       Así se mantienen la posición del scroll y la selección de la tabla.
+       La recarga completa (cargarTareas) solo se hace al iniciar o desde el menú Archivo.
+       Con la lista por páginas, una tarea modificada se cambia en su página (ListaTareasPaginada.actualizar).
+       Si se inserta o se elimina una, o ya no cumple el filtro, no se sabe en qué página cae, así que
+       se vuelven a pedir las páginas visibles (ListaTareasPaginada.recargar), una consulta por clave barata.
+       Si hay un filtro activo, una tarea que ya no lo cumple sale de la tabla y una nueva que
+       no lo cumple no se añade (se ha guardado, pero no se ve hasta quitar el filtro).
+    */
+    private void aplicarCambio(CambioTarea cambio) {
+        if (listaPaginada != null) {
+            if (cambio.tipo() == CambioTarea.Tipo.ACTUALIZADA && filtro.acepta(cambio.tarea())) {
+                listaPaginada.actualizar(cambio.tarea());
+            } else {
+                listaPaginada.recargar();
+            }
+            return;
+        }
+
+        Tarea tarea = cambio.tarea();
+        int posicion = posicionDe(tarea.getId());
+
+        switch (cambio.tipo()) {
+            case INSERTADA -> {
+                if (!filtro.acepta(tarea)) return;
+                listaTareas.add(posicionOrdenada(tarea), tarea);
+            }
+            case ACTUALIZADA -> {
+                if (posicion < 0) return;
+                if (!filtro.acepta(tarea)) {
+                    listaTareas.remove(posicion);
+                    return;
+                }
+                boolean seleccionada = tablaTareas.getSelectionModel().isSelected(posicion);
+                listaTareas.set(posicion, tarea);
+                if (seleccionada) tablaTareas.getSelectionModel().select(posicion);
+            }
+            case ELIMINADA -> {
+                if (posicion >= 0) listaTareas.remove(posicion);
+            }
         }
 
         /*
-        Una vez eliminadas, recarga la tabla para reflejar los cambios.
+         Si el usuario ha ordenado la tabla por alguna columna, se vuelve a aplicar ese orden.
          */
-        cargarTareas();
+        if (!tablaTareas.getSortOrder().isEmpty()) tablaTareas.sort();
+
+        /*
+         La tarea nueva queda seleccionada y visible.
+         */
+        if (cambio.tipo() == CambioTarea.Tipo.INSERTADA) {
+            tablaTareas.getSelectionModel().clearAndSelect(listaTareas.indexOf(tarea));
+            tablaTareas.scrollTo(tarea);
+        }
+    }
+
+    /*
+     Posición en la lista de la tarea con ese id, o -1 si no está.
+     */
+    private int posicionDe(int id) {
+        for (int i = 0; i < listaTareas.size(); i++) {
+            if (listaTareas.get(i).getId() == id) return i;
+        }
+        return -1;
+    }
+
+    /*
+     Posición donde iría la tarea nueva siguiendo el mismo orden que cargarTareas (ORDER BY fecha ASC).
+     */
+    private int posicionOrdenada(Tarea tarea) {
+        for (int i = 0; i < listaTareas.size(); i++) {
+            if (ORDEN_FECHA.compare(tarea, listaTareas.get(i)) < 0) return i;
+        }
+        return listaTareas.size();
     }
 
     /* ----------------------------------------------------
@@ -340,13 +546,30 @@ public class ControladorPrincipal {
        ----------------------------------------------------
        Este metodo se comunica con la BaseDeDatos
        Carga las tareas del usuario logueado "SesionUsuario.getUsuarioActual()"
+       Es la recarga completa: se usa al abrir la ventana y desde el menú "Recargar tareas".
+
+       Primero se cuentan las tareas. Hasta UMBRAL_PAGINADO se cargan todas en listaTareas;
+       si hay más, la tabla usa una ListaTareasPaginada que solo trae de la base de datos
+       las páginas que se ven. En ese modo no se puede ordenar por columnas, porque el orden
+       lo da la consulta (fecha, id) y no la tabla.
     */
     @FXML
     private void cargarTareas() {
+        /*
+         Si hay una búsqueda escrita, recargar es repetir la búsqueda.
+         */
+        if (!textoBusqueda().isBlank()) {
+            buscarTareas();
+            return;
+        }
+
         /*
          Limpiar la lista actual para evitar duplicados.
          */
         listaTareas.clear();
+        long inicio = System.nanoTime();
+        int carga = ++cargaActual;
+        FiltroTareas filtroCarga = filtro;
         int usuarioId = SesionUsuario.getUsuarioActual();
         /*
          Si no hay sesión iniciada, sale.
@@ -354,36 +577,323 @@ public class ControladorPrincipal {
         if (usuarioId <= 0) return;
 
         /*
-         Se usa "try-with-resources" para asegurar el cierre del ResultSet y la conexión.
+         BaseDeDatos.consultar se encarga de abrir y cerrar la conexión, la sentencia y el ResultSet.
+         Cada fila se convierte en un objeto Tarea con Tarea::desdeFila.
+         La consulta se hace en segundo plano y la lista se rellena en el hilo de JavaFX.
          */
-        try (ResultSet resultSet = BaseDeDatos.consultar(
+        mostrarCargando(true);
+        BaseDeDatosAsync.enFx(
                 /*
                  Consulta las tareas asociadas al ID del usuario logueado
                  */
-                "SELECT * FROM tareas WHERE usuario_id = ? ORDER BY fecha ASC",
-                usuarioId
-        )) {
-            while (resultSet.next()) {
+                BaseDeDatosAsync.enSegundoPlano(() -> {
+                    /* Las modificaciones que sigan en la cola de escritura diferida se ponen encima de lo leído */
+                    Map<Integer, Tarea> enCola = ColaEscrituraDiferida.instantanea();
+                    int total = ConsultasTareas.contar(usuarioId, filtroCarga);
+                    if (total > UMBRAL_PAGINADO) return new ResultadoCarga(total, null);
+                    return new ResultadoCarga(total, ColaEscrituraDiferida.superponer(
+                            ConsultasTareas.deUsuario(usuarioId, filtroCarga), enCola, filtroCarga::acepta));
+                }),
+                resultado -> {
+                    mostrarCargando(false);
+                    /* Si mientras tanto se ha pedido otra recarga, esta respuesta ya no vale */
+                    if (carga != cargaActual) return;
+
+                    if (resultado.tareas() == null) {
+                        usarListaPaginada(new ListaTareasPaginada(usuarioId, filtroCarga, resultado.total()));
+                    } else {
+                        usarListaPaginada(null);
+                        listaTareas.setAll(resultado.tareas());
+                    }
+                    /* Desde que se pide hasta que la tabla tiene las tareas (o la lista por páginas) */
+                    TIEMPO_RECARGA.registrarDesde(inicio);
+                },
                 /*
-                 Mapeo de la fila del ResultSet a un objeto Tarea.
-                 */
-                listaTareas.add(new Tarea(
-                        resultSet.getInt("id"),
-                        resultSet.getString("titulo"),
-                        resultSet.getString("descripcion"),
-                        resultSet.getString("fecha"),
-                        resultSet.getString("estado"),
-                        resultSet.getObject("id_categoria") != null ? resultSet.getInt("id_categoria") : null
-                ));
+                Captura las excepciones adicionales que pudieran surgir,
+                pasa un aviso indicando que no se han cargado las tareas
+                */
+                error -> {
+                    mostrarCargando(false);
+                    Metricas.error("cargar tareas", error);
+                    mostrarAlerta("Error", "No se pudieron cargar las tareas desde la base de datos.");
+                }
+        );
+    }
+
+    /* ----------------------------------------------------
+
+                      Metodo importarTareas
+
+       ----------------------------------------------------
+       Importa las tareas de un archivo CSV o JSON (ImportadorTareas) al usuario logueado.
+       La importación va en segundo plano y se puede seguir usando la ventana; la barra de la
+       parte inferior enseña el avance y, al terminar, se recarga la tabla y se muestra el resumen.
+    */
+    @FXML
+    private void importarTareas() {
+        if (importacion != null) {
+            mostrarAlerta("Importación en curso", "Espera a que termine la importación actual.");
+            return;
+        }
+        int usuarioId = SesionUsuario.getUsuarioActual();
+        if (usuarioId <= 0) return;
+
+        FileChooser selector = new FileChooser();
+        selector.setTitle("Importar tareas");
+        selector.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV o JSON", "*.csv", "*.json"),
+                new FileChooser.ExtensionFilter("Todos los archivos", "*.*"));
+        File archivo = selector.showOpenDialog(tablaTareas.getScene().getWindow());
+        if (archivo == null) return;
+
+        barraImportacion.setVisible(true);
+        barraImportacion.setManaged(true);
+        progresoImportacion.setProgress(0);
+        lblImportacion.setText("Importando " + archivo.getName() + "…");
+
+        importacion = ImportadorTareas.importarEnSegundoPlano(archivo.toPath(), usuarioId,
+                /* El progreso llega desde el hilo de la importación: se pasa al de JavaFX */
+                progreso -> Platform.runLater(() -> {
+                    progresoImportacion.setProgress(progreso.fraccion());
+                    lblImportacion.setText(String.format("Importando %s… %,d tareas",
+                            archivo.getName(), progreso.importadas()));
+                }));
+
+        BaseDeDatosAsync.enFx(importacion.resultado(),
+                resultado -> {
+                    terminarImportacion();
+                    cargarTareas();
+
+                    StringBuilder resumen = new StringBuilder(String.format("Se han importado %,d tareas en %.1f s.",
+                            resultado.importadas(), resultado.milisegundos() / 1000.0));
+                    if (resultado.descartadas() > 0) {
+                        resumen.append(String.format("%n%nNo se han importado %,d filas con errores:", resultado.descartadas()));
+                        resultado.errores().stream().limit(ERRORES_IMPORTACION_VISIBLES)
+                                .forEach(error -> resumen.append(System.lineSeparator()).append("- ").append(error));
+                    }
+                    mostrarAlerta("Importación terminada", resumen.toString());
+                },
+                error -> {
+                    terminarImportacion();
+                    /* Solo se cancela al cerrar sesión, con la ventana ya cerrada: no hay nada que recargar */
+                    if (error instanceof CancellationException) return;
+                    /* Las transacciones que terminaron antes del error ya están guardadas */
+                    cargarTareas();
+                    Metricas.error("importar tareas", error);
+                    mostrarAlerta("Error", "No se pudo importar el archivo:\n" + error.getMessage());
+                }
+        );
+    }
+
+    private void terminarImportacion() {
+        importacion = null;
+        barraImportacion.setVisible(false);
+        barraImportacion.setManaged(false);
+    }
+
+    /* ----------------------------------------------------
+
+                      Metodo exportarTareas
+
+       ----------------------------------------------------
+       Exporta las tareas del usuario a un archivo CSV o JSON (ExportadorTareas), con el filtro
+       activo y en el orden de las columnas de la tabla. El texto del buscador no se aplica:
+       se exportan todas las tareas que cumplen el filtro, no solo los resultados de la búsqueda.
+       Va en segundo plano, con su barra de progreso y un botón para cancelarla.
+    */
+    @FXML
+    private void exportarTareas() {
+        if (exportacion != null) {
+            mostrarAlerta("Exportación en curso", "Espera a que termine la exportación actual o cancélala.");
+            return;
+        }
+        int usuarioId = SesionUsuario.getUsuarioActual();
+        if (usuarioId <= 0) return;
+
+        FileChooser selector = new FileChooser();
+        selector.setTitle("Exportar tareas");
+        selector.setInitialFileName("tareas.csv");
+        selector.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON", "*.json"));
+        File archivo = selector.showSaveDialog(tablaTareas.getScene().getWindow());
+        if (archivo == null) return;
+
+        barraExportacion.setVisible(true);
+        barraExportacion.setManaged(true);
+        progresoExportacion.setProgress(0);
+        lblExportacion.setText("Exportando " + archivo.getName() + "…");
+
+        exportacion = ExportadorTareas.exportarEnSegundoPlano(archivo.toPath(), usuarioId, filtro, ordenDeLaTabla(),
+                /* El progreso llega desde el hilo de la exportación: se pasa al de JavaFX */
+                progreso -> Platform.runLater(() -> {
+                    progresoExportacion.setProgress(progreso.fraccion());
+                    lblExportacion.setText(String.format("Exportando %s… %,d de %,d tareas",
+                            archivo.getName(), progreso.exportadas(), progreso.total()));
+                }));
+
+        BaseDeDatosAsync.enFx(exportacion.resultado(),
+                resultado -> {
+                    terminarExportacion();
+                    mostrarAlerta("Exportación terminada", String.format("Se han exportado %,d tareas a %s en %.1f s.",
+                            resultado.tareas(), archivo.getName(), resultado.milisegundos() / 1000.0));
+                },
+                error -> {
+                    terminarExportacion();
+                    /* Al cancelar no se deja ningún archivo a medias, no hace falta avisar */
+                    if (error instanceof CancellationException) return;
+                    Metricas.error("exportar tareas", error);
+                    mostrarAlerta("Error", "No se pudieron exportar las tareas:\n" + error.getMessage());
+                }
+        );
+    }
+
+    @FXML
+    private void cancelarExportacion() {
+        if (exportacion == null) return;
+        exportacion.cancelar();
+        lblExportacion.setText("Cancelando…");
+    }
+
+    private void terminarExportacion() {
+        exportacion = null;
+        barraExportacion.setVisible(false);
+        barraExportacion.setManaged(false);
+    }
+
+    /*
+     Orden de la tabla (las columnas por las que ha ordenado el usuario) para ConsultasTareas.recorrer.
+     Vacío si no ha ordenado por ninguna: entonces se usa el orden normal, por fecha.
+     */
+    private List<ConsultasTareas.Orden> ordenDeLaTabla() {
+        List<ConsultasTareas.Orden> orden = new ArrayList<>();
+        for (TableColumn<Tarea, ?> columna : tablaTareas.getSortOrder()) {
+            ConsultasTareas.ColumnaOrden columnaOrden =
+                    columna == colTitulo ? ConsultasTareas.ColumnaOrden.TITULO
+                    : columna == colDescripcion ? ConsultasTareas.ColumnaOrden.DESCRIPCION
+                    : columna == colFecha ? ConsultasTareas.ColumnaOrden.FECHA
+                    : columna == colEstado ? ConsultasTareas.ColumnaOrden.ESTADO
+                    : columna == colCategoria ? ConsultasTareas.ColumnaOrden.CATEGORIA
+                    : null;
+            if (columnaOrden != null) {
+                orden.add(new ConsultasTareas.Orden(columnaOrden, columna.getSortType() == TableColumn.SortType.ASCENDING));
             }
-            /*
-            Captura las excepciones adicionales que pudieran surgir,
-            pasa un aviso indicando que no se han cargado las tareas
-            */
-        } catch (SQLException e) {
-            e.printStackTrace();
-            mostrarAlerta("Error", "No se pudieron cargar las tareas desde la base de datos.");
         }
+        return orden;
+    }
+
+    /* ----------------------------------------------------
+
+                       Metodo buscarTareas
+
+       ----------------------------------------------------
+       Muestra las tareas del usuario que contienen el texto del buscador, de la más a la menos
+       relevante (ConsultasTareas.buscar, con el índice de texto completo FTS5).
+       Con el buscador vacío se vuelven a cargar todas.
+    */
+    private void buscarTareas() {
+        String texto = textoBusqueda();
+        if (texto.isBlank()) {
+            cargarTareas();
+            return;
+        }
+
+        int usuarioId = SesionUsuario.getUsuarioActual();
+        if (usuarioId <= 0) return;
+
+        long inicio = System.nanoTime();
+        int carga = ++cargaActual;
+        FiltroTareas filtroBusqueda = filtro;
+        mostrarCargando(true);
+        BaseDeDatosAsync.enFx(
+                BaseDeDatosAsync.enSegundoPlano(() -> {
+                    Map<Integer, Tarea> enCola = ColaEscrituraDiferida.instantanea();
+                    return ColaEscrituraDiferida.superponer(
+                            ConsultasTareas.buscar(usuarioId, texto, filtroBusqueda, MAX_RESULTADOS_BUSQUEDA),
+                            enCola, filtroBusqueda::acepta);
+                }),
+                tareas -> {
+                    mostrarCargando(false);
+                    /* Si mientras tanto se ha escrito otra cosa, esta respuesta ya no vale */
+                    if (carga != cargaActual) return;
+
+                    usarListaPaginada(null);
+                    /* Los resultados se muestran por relevancia, no por el orden de una columna */
+                    tablaTareas.getSortOrder().clear();
+                    listaTareas.setAll(tareas);
+                    TIEMPO_BUSQUEDA.registrarDesde(inicio);
+                },
+                error -> {
+                    mostrarCargando(false);
+                    Metricas.error("buscar tareas", error);
+                    mostrarAlerta("Error", "No se pudo realizar la búsqueda.");
+                }
+        );
+    }
+
+    /* ----------------------------------------------------
+
+                       Metodo aplicarFiltro
+
+       ----------------------------------------------------
+       Lee los selectores de filtro y vuelve a cargar (o a buscar) con el filtro nuevo.
+    */
+    private void aplicarFiltro() {
+        String estado = cbFiltroEstado.getValue();
+        Categoria categoria = cbFiltroCategoria.getValue();
+
+        FiltroTareas nuevo = new FiltroTareas(
+                EstadoTarea.desdeNombre(estado),
+                categoria == null || categoria == TODAS_LAS_CATEGORIAS ? null : categoria.getId(),
+                dpFiltroDesde.getValue(),
+                dpFiltroHasta.getValue()
+        );
+        if (nuevo.equals(filtro)) return;
+
+        filtro = nuevo;
+        cargarTareas();
+    }
+
+    /*
+     Deja todos los filtros en "sin filtrar". Los listeners no recargan,
+     porque el filtro que leen ya es el mismo; se recarga una sola vez al final.
+     */
+    @FXML
+    private void quitarFiltros() {
+        filtro = FiltroTareas.NINGUNO;
+        cbFiltroEstado.setValue(TODOS_LOS_ESTADOS);
+        cbFiltroCategoria.setValue(TODAS_LAS_CATEGORIAS);
+        dpFiltroDesde.setValue(null);
+        dpFiltroHasta.setValue(null);
+        cargarTareas();
+    }
+
+    private String textoBusqueda() {
+        return txtBuscar.getText() == null ? "" : txtBuscar.getText();
+    }
+
+    /* Resultado de cargarTareas: el número de tareas y, si no pasan del umbral, las tareas. */
+    private record ResultadoCarga(int total, List<Tarea> tareas) {}
+
+    /*
+     Cambia la tabla entre la lista completa (null) y la lista por páginas.
+     */
+    private void usarListaPaginada(ListaTareasPaginada paginada) {
+        listaPaginada = paginada;
+        tablaTareas.setItems(paginada != null ? paginada : listaTareas);
+        if (paginada != null) tablaTareas.getSortOrder().clear();
+        for (TableColumn<Tarea, ?> columna : tablaTareas.getColumns()) {
+            columna.setSortable(paginada == null);
+        }
+    }
+
+    /*
+     Muestra el indicador de progreso sobre la tabla mientras haya alguna operación en curso.
+     Lleva la cuenta porque puede haber varias a la vez (por ejemplo, una recarga y un borrado).
+     */
+    private void mostrarCargando(boolean cargando) {
+        operacionesEnCurso += cargando ? 1 : -1;
+        indicadorCarga.setVisible(operacionesEnCurso > 0);
     }
 
     /* ----------------------------------------------------
@@ -395,6 +905,19 @@ public class ControladorPrincipal {
     @FXML
     private void cerrarSesion() {
         try {
+            /*
+             Escribe en segundo plano las modificaciones que queden en la cola de escritura diferida.
+             Esta ventana se cierra, así que deja de recibir sus avisos de fallo: si el volcado falla,
+             queda en Metricas y la cola lo sigue intentando; avisará a la ventana de la próxima sesión.
+             */
+            ColaEscrituraDiferida.avisarFallos(null);
+            BaseDeDatosAsync.enSegundoPlano(ColaEscrituraDiferida::vaciarSilencioso);
+            /*
+             Cancela la exportación y la importación que haya en curso: su barra de progreso se va con esta ventana.
+             De la importación se quedan guardadas las transacciones que ya hayan terminado.
+             */
+            if (exportacion != null) exportacion.cancelar();
+            if (importacion != null) importacion.cancelar();
             /*
              Limpia la sesión actual.
              */
@@ -411,9 +934,13 @@ public class ControladorPrincipal {
             Stage login = new Stage();
             login.setScene(new Scene(cargadorFXML.load()));
             login.show();
+            /*
+            Mientras tanto se vuelven a precargar la ventana principal y el formulario para la próxima sesión.
+             */
+            PrecargaVistas.iniciar();
 
         } catch (Exception excepcion) {
-            excepcion.printStackTrace();
+            Metricas.error("cerrar sesión", excepcion);
         }
     }
 
@@ -429,6 +956,7 @@ public class ControladorPrincipal {
     private void cerrarApp() {
         /*
         Cierra la aplicación JavaFX completamente.
+        Main.stop vuelca la cola de escritura diferida antes de cerrar la base de datos.
          */
         Platform.exit();
     }
@@ -494,6 +1022,36 @@ public class ControladorPrincipal {
                 "Versión 1.0\nDesarrollado por Aitor Benito Heras\nProyecto Final CFGS DAM - Ilerna Online");
     }
 
+    /* -------------------------------
+
+            Metodo abrirDiagnostico
+
+        -------------------------------
+    Abre la ventana de diagnóstico (diagnostico.fxml) con las métricas de la aplicación (Metricas).
+    No es modal: se puede dejar abierta mientras se usa la ventana principal. Si ya está abierta, se trae al frente.
+    */
+    @FXML
+    private void abrirDiagnostico() {
+        try {
+            if (escenarioDiagnostico == null) {
+                PrecargaVistas.Vista<ControladorDiagnostico> vista = PrecargaVistas.cargar("/view/diagnostico.fxml");
+
+                Stage escenario = new Stage();
+                escenario.setTitle("TaskEasy — Diagnóstico");
+                escenario.initOwner(tablaTareas.getScene().getWindow());
+                escenario.setScene(new Scene(vista.raiz()));
+                vista.controlador().actualizarMientrasAbierta(escenario);
+                escenarioDiagnostico = escenario;
+            }
+            escenarioDiagnostico.show();
+            escenarioDiagnostico.toFront();
+
+        } catch (Exception excepcion) {
+            Metricas.error("abrir diagnóstico", excepcion);
+            mostrarAlerta("Error", "No se pudo abrir la ventana de diagnóstico.");
+        }
+    }
+
     /* ------------------------------------------------------------------------
 
               Metodo para la Leyenda de colores de la parte inferior
@@ -506,26 +1064,42 @@ public class ControladorPrincipal {
 
         contLeyenda.setSpacing(10);
         contLeyenda.getChildren().setAll(
-                componentesLeyenda("Completada", "#b6f7b0"),
-                componentesLeyenda("En curso", "#cfe3ff"),
-                componentesLeyenda("Pendiente", "#fff4a3"),
-                componentesLeyenda("Sin estado", "#ffd4a3")
+                componentesLeyenda("Completada", EstadoTarea.COMPLETADA),
+                componentesLeyenda("En curso", EstadoTarea.EN_CURSO),
+                componentesLeyenda("Pendiente", EstadoTarea.PENDIENTE),
+                componentesLeyenda("Sin estado", EstadoTarea.SIN_ESTADO)
         );
     }
 
     /*
     Para la definicion de los componentes de la leyenda, crea un componente HBox simple
-    con un bloque de color y una etiqueta de texto indicando que color es
+    con un bloque de color y una etiqueta de texto indicando que color es.
+    El bloque usa el mismo estado CSS que las filas, así el color sale del tema y siempre coincide.
      */
-    private HBox componentesLeyenda(String texto, String colorHex) {
+    private HBox componentesLeyenda(String texto, EstadoTarea estado) {
         HBox contenedor = new HBox(5);
         Region color = new Region();
         color.setPrefSize(16, 16);
-        color.setStyle("-fx-background-color:" + colorHex + "; -fx-border-color:#888;");
+        color.getStyleClass().add("leyenda-estado");
+        color.pseudoClassStateChanged(PSEUDO_ESTADOS[estado.codigo()], true);
         contenedor.getChildren().addAll(color, new Label(texto));
         return contenedor;
     }
 
+    /*
+     Un estado CSS por cada EstadoTarea, en el orden de su código:
+     "estado-" + el nombre de la constante en minúsculas y con guiones (EN_CURSO → estado-en-curso).
+     */
+    private static PseudoClass[] pseudoClasesEstados() {
+        EstadoTarea[] estados = EstadoTarea.values();
+        PseudoClass[] pseudoClases = new PseudoClass[estados.length];
+        for (EstadoTarea estado : estados) {
+            pseudoClases[estado.codigo()] = PseudoClass.getPseudoClass(
+                    "estado-" + estado.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+        }
+        return pseudoClases;
+    }
+
 
     /* ------------------------------------------------------------------------
 
@@ -3,15 +3,16 @@ package com.aitorbenito.taskeasy;
 /*
 Imports javaFX
 */
+import javafx.css.PseudoClass;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 
 
 /*
-Import java SQL
+Import de la disponibilidad de email y nombre
 */
-import java.sql.SQLException;
+import com.aitorbenito.taskeasy.DisponibilidadUsuarios.Disponibilidad;
 
 /*Clase RegisterController*/
 public class ControladorRegistro {
@@ -22,6 +23,60 @@ public class ControladorRegistro {
     @FXML private TextField txtEmail;
     @FXML private TextField txtNombre;
     @FXML private PasswordField txtContraseña;
+    @FXML private Button btnCrear;
+    @FXML private ProgressIndicator indicadorCarga;
+    @FXML private Label lblEmailDisponible;
+    @FXML private Label lblNombreDisponible;
+
+    /*
+     Estados CSS de los avisos de disponibilidad (.aviso-disponibilidad:libre / :en-uso).
+     Los colores están en temaClaro.css / temaOscuro.css, como los de las filas de la tabla principal.
+     */
+    private static final PseudoClass PSEUDO_LIBRE = PseudoClass.getPseudoClass("libre");
+    private static final PseudoClass PSEUDO_EN_USO = PseudoClass.getPseudoClass("en-uso");
+
+
+    /* ----------------------------------
+
+               Metodo initialize
+
+       ----------------------------------
+     Carga en segundo plano los emails y nombres ya registrados (DisponibilidadUsuarios)
+     y, mientras se escribe, avisa debajo de cada campo si está libre o en uso.
+     Es una consulta en memoria por tecla: la base de datos solo se lee una vez.
+     */
+    @FXML
+    private void initialize() {
+        txtEmail.textProperty().addListener((obs, anterior, actual) -> comprobarDisponibilidad());
+        txtNombre.textProperty().addListener((obs, anterior, actual) -> comprobarDisponibilidad());
+
+        BaseDeDatosAsync.enFx(
+                DisponibilidadUsuarios.cargar(),
+                cargada -> comprobarDisponibilidad(),
+                /* Sin la lista el formulario funciona igual, solo sin los avisos */
+                error -> Metricas.error("cargar emails y nombres en uso", error)
+        );
+    }
+
+    private void comprobarDisponibilidad() {
+        String email = txtEmail.getText().trim();
+        String nombre = txtNombre.getText().trim();
+        mostrarDisponibilidad(lblEmailDisponible, email.isEmpty() ? null : DisponibilidadUsuarios.email(email),
+                "Correo disponible", "Ese correo ya está registrado");
+        mostrarDisponibilidad(lblNombreDisponible, nombre.isEmpty() ? null : DisponibilidadUsuarios.nombre(nombre),
+                "Nombre disponible", "Ese nombre ya está en uso");
+    }
+
+    /*
+     Texto y estado CSS del aviso; sin texto si el campo está vacío o la lista aún no se ha cargado.
+     */
+    private static void mostrarDisponibilidad(Label aviso, Disponibilidad disponibilidad, String libre, String enUso) {
+        boolean esLibre = disponibilidad == Disponibilidad.LIBRE;
+        boolean esEnUso = disponibilidad == Disponibilidad.EN_USO;
+        aviso.setText(esLibre ? libre : esEnUso ? enUso : "");
+        aviso.pseudoClassStateChanged(PSEUDO_LIBRE, esLibre);
+        aviso.pseudoClassStateChanged(PSEUDO_EN_USO, esEnUso);
+    }
 
 
 
@@ -33,7 +88,7 @@ public class ControladorRegistro {
        Maneja el funcionamiento del botón de registro.
     */
     @FXML
-    private void crearCuenta() throws SQLException {
+    private void crearCuenta() {
 
         String email = txtEmail.getText().trim();
         String nombre = txtNombre.getText().trim();
@@ -45,27 +100,46 @@ public class ControladorRegistro {
             return;
         }
 
-        // Comprueba si el email está duplicado
-        if (BaseDeDatos.existe("email", email)) {
-            mostrar("Email en uso", "Ese correo ya está registrado.");
-            return;
-        }
-
-        // Comprueba si el nombre de usuario duplicado
-        if (BaseDeDatos.existe("nombre", nombre)) {
-            mostrar("Nombre en uso", "Ese nombre ya está registrado. Usa otro.");
-            return;
-        }
-
-        // Si las validaciones pasan, inserta el nuevo usuario.
-        // Utiliza el metodo genérico "BaseDeDatos.ejecutar"` para la operación INSERT del usuario en la base de datos.
-        BaseDeDatos.ejecutar(
-                "INSERT INTO usuarios (nombre, email, password) VALUES (?, ?, ?)",
-                nombre, email, password
+        /*
+        El hash de la contraseña y el INSERT se hacen en segundo plano, para no congelar la ventana.
+        Es un solo INSERT: si el email o el nombre ya existen, lo dicen las restricciones UNIQUE
+        de la tabla (ConsultasUsuarios.registrar), sin consultas previas.
+        El resultado vuelve al hilo de JavaFX con BaseDeDatosAsync.enFx.
+        */
+        mostrarCargando(true);
+        BaseDeDatosAsync.enFx(
+                ConsultasUsuarios.registrarEnSegundoPlano(email, nombre, password),
+                resultado -> {
+                    mostrarCargando(false);
+                    switch (resultado) {
+                        case EMAIL_EN_USO -> {
+                            comprobarDisponibilidad();
+                            mostrar("Email en uso", "Ese correo ya está registrado.");
+                        }
+                        case NOMBRE_EN_USO -> {
+                            comprobarDisponibilidad();
+                            mostrar("Nombre en uso", "Ese nombre ya está registrado. Usa otro.");
+                        }
+                        case CREADA -> {
+                            mostrar("Cuenta creada", "Tu usuario ha sido registrado correctamente.");
+                            cerrar(); // Cierra la ventana de registro.
+                        }
+                    }
+                },
+                error -> {
+                    mostrarCargando(false);
+                    Metricas.error("registro de usuario", error);
+                    mostrar("Error", "No se pudo crear la cuenta.");
+                }
         );
+    }
 
-        mostrar("Cuenta creada", "Tu usuario ha sido registrado correctamente.");
-        cerrar(); // Cierra la ventana de registro.
+    /*
+     Muestra el indicador de progreso y bloquea el botón mientras se crea la cuenta.
+     */
+    private void mostrarCargando(boolean cargando) {
+        indicadorCarga.setVisible(cargando);
+        btnCrear.setDisable(cargando);
     }
 
 
@@ -0,0 +1,87 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.util
+*/
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/* ------------------------------------------
+
+            Clase DisponibilidadUsuarios
+
+   ------------------------------------------
+ Copia en memoria de los emails y nombres de usuario ya registrados, para que la ventana de registro
+ diga mientras se escribe si están libres, sin consultar la base de datos en cada tecla.
+
+ - Se carga una sola vez, en segundo plano, con cargar() (al abrir la ventana de registro).
+ - ConsultasUsuarios.registrar añade los que se registran o resultan estar en uso (anotar).
+ - Solo es una ayuda para el formulario: quien decide de verdad son las restricciones UNIQUE
+   de la tabla al hacer el INSERT (otra instancia de la aplicación puede haber registrado alguno).
+ - Distingue mayúsculas y minúsculas, igual que las restricciones UNIQUE de la tabla.
+ */
+final class DisponibilidadUsuarios {
+
+    enum Disponibilidad { SIN_CARGAR, LIBRE, EN_USO }
+
+    private static final Set<String> EMAILS = ConcurrentHashMap.newKeySet();
+    private static final Set<String> NOMBRES = ConcurrentHashMap.newKeySet();
+
+    private static volatile boolean cargada = false;
+    private static CompletableFuture<Void> carga = null;
+
+    private DisponibilidadUsuarios() {}
+
+    /* ----------------------------------
+
+                Metodo cargar
+
+       ----------------------------------
+     Lee todos los emails y nombres en segundo plano la primera vez; las demás devuelve la misma carga.
+     Si falla, la siguiente llamada lo vuelve a intentar.
+     */
+    static synchronized CompletableFuture<Void> cargar() {
+        if (carga == null) {
+            carga = BaseDeDatosAsync.enSegundoPlano(() -> {
+                try (Stream<String[]> usuarios = BaseDeDatos.consultarStream("SELECT email, nombre FROM usuarios",
+                        resultSet -> new String[]{resultSet.getString("email"), resultSet.getString("nombre")})) {
+                    usuarios.forEach(usuario -> anotar(usuario[0], usuario[1]));
+                }
+                cargada = true;
+                return null;
+            });
+            carga.whenComplete((resultado, error) -> {
+                if (error != null) olvidarCarga();
+            });
+        }
+        return carga;
+    }
+
+    private static synchronized void olvidarCarga() {
+        carga = null;
+    }
+
+    static Disponibilidad email(String email) {
+        return disponibilidad(EMAILS, email);
+    }
+
+    static Disponibilidad nombre(String nombre) {
+        return disponibilidad(NOMBRES, nombre);
+    }
+
+    private static Disponibilidad disponibilidad(Set<String> registrados, String valor) {
+        if (!cargada) return Disponibilidad.SIN_CARGAR;
+        return registrados.contains(valor) ? Disponibilidad.EN_USO : Disponibilidad.LIBRE;
+    }
+
+    /*
+     Marca como en uso el email y el nombre que no sean null.
+     */
+    static void anotar(String email, String nombre) {
+        if (email != null) EMAILS.add(email);
+        if (nombre != null) NOMBRES.add(nombre);
+    }
+}
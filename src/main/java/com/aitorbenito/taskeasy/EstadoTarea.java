@@ -0,0 +1,65 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/* ------------------------------------------
+
+            Enum EstadoTarea
+
+   ------------------------------------------
+ Estados posibles de una tarea.
+
+ En la base de datos se guarda el código (columna tareas.id_estado), un entero pequeño,
+ en lugar del texto. La tabla 'estados' tiene los mismos códigos y nombres (migración 6),
+ y este enum es la copia en Java: el código de cada estado es su ordinal, así que el orden
+ de las constantes NO se puede cambiar (solo añadir al final, con su migración).
+ */
+public enum EstadoTarea {
+
+    SIN_ESTADO("Sin estado definido"),
+    PENDIENTE("Pendiente"),
+    EN_CURSO("En curso"),
+    COMPLETADA("Completada");
+
+    /* values() crea un array nuevo en cada llamada, así que lo guardamos una vez */
+    private static final EstadoTarea[] POR_CODIGO = values();
+
+    private final String nombre;
+
+    EstadoTarea(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /* Código que se guarda en tareas.id_estado */
+    public int codigo() {
+        return ordinal();
+    }
+
+    /* Nombre que se muestra al usuario */
+    public String nombre() {
+        return nombre;
+    }
+
+    /*
+     Estado de un código de la base de datos. Un código desconocido se trata como SIN_ESTADO.
+     */
+    public static EstadoTarea desdeCodigo(int codigo) {
+        return codigo >= 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : SIN_ESTADO;
+    }
+
+    /*
+     Estado a partir de su nombre ("En curso"...), sin distinguir mayúsculas. null si no existe.
+     */
+    public static EstadoTarea desdeNombre(String nombre) {
+        if (nombre == null) return null;
+        for (EstadoTarea estado : POR_CODIGO) {
+            if (estado.nombre.equalsIgnoreCase(nombre.trim())) return estado;
+        }
+        return null;
+    }
+
+    /* ChoiceBox y ComboBox muestran el toString */
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
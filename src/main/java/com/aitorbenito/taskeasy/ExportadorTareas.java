@@ -0,0 +1,313 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.io y java.nio
+*/
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+
+/*
+Imports java.util
+*/
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/* ------------------------------------------
+
+            Clase ExportadorTareas
+
+   ------------------------------------------
+ Exporta las tareas del usuario a un archivo CSV o JSON, con el filtro y el orden de la tabla.
+
+ Las tareas no pasan por la lista de la tabla ni se cargan todas en memoria: cada fila va
+ del cursor de la consulta (ConsultasTareas.recorrer) a un ByteBuffer de BUFFER_BYTES,
+ que se vuelca al FileChannel del archivo cada vez que se llena. La memoria usada es la misma
+ con cien tareas que con un millón.
+
+ - El formato es el mismo que lee ImportadorTareas: el archivo exportado se puede volver a importar.
+ - Se escribe en un archivo temporal junto al destino, que solo sustituye al destino al terminar:
+   si se cancela o falla, el archivo de destino no se toca.
+ - Se puede cancelar en cualquier momento con Exportacion.cancelar().
+ */
+final class ExportadorTareas {
+
+    enum Formato { CSV, JSON }
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /* Cada cuántas tareas se avisa del progreso */
+    private static final int AVISO_CADA = 10_000;
+
+    private static final String[] COLUMNAS = {"titulo", "descripcion", "fecha", "estado", "categoria"};
+
+    /*
+     Avance de la exportación: tareas escritas y total de tareas a exportar.
+     */
+    record Progreso(long exportadas, long total) {
+        double fraccion() {
+            return total > 0 ? Math.min(1.0, (double) exportadas / total) : 1.0;
+        }
+    }
+
+    /*
+     Resultado final: tareas exportadas, bytes escritos y duración.
+     */
+    record Resultado(long tareas, long bytes, long milisegundos) {}
+
+    /*
+     Exportación en curso: su resultado y la forma de cancelarla.
+     Si se cancela, el futuro termina con CancellationException.
+     */
+    static final class Exportacion {
+        private final CompletableFuture<Resultado> resultado = new CompletableFuture<>();
+        private volatile boolean cancelada = false;
+
+        CompletableFuture<Resultado> resultado() {
+            return resultado;
+        }
+
+        void cancelar() {
+            cancelada = true;
+        }
+    }
+
+    private ExportadorTareas() {}
+
+    /*
+     Formato según la extensión del archivo: .json como JSON, cualquier otra como CSV.
+     */
+    static Formato formatoDe(Path archivo) {
+        return archivo.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json") ? Formato.JSON : Formato.CSV;
+    }
+
+    /* ----------------------------------
+
+          Metodo exportarEnSegundoPlano
+
+       ----------------------------------
+     Exporta en un hilo aparte. alAvanzar recibe el avance desde ese hilo.
+     */
+    static Exportacion exportarEnSegundoPlano(Path destino, int usuarioId, FiltroTareas filtro,
+                                              List<ConsultasTareas.Orden> orden, Consumer<Progreso> alAvanzar) {
+        Exportacion exportacion = new Exportacion();
+        Thread.ofVirtual().name("taskeasy-exportacion").start(() -> {
+            try {
+                exportacion.resultado.complete(exportar(destino, usuarioId, filtro, orden, alAvanzar, exportacion));
+            } catch (Exception excepcion) {
+                exportacion.resultado.completeExceptionally(excepcion);
+            }
+        });
+        return exportacion;
+    }
+
+    /* ----------------------------------
+
+               Metodo exportar
+
+       ----------------------------------
+     Escribe las tareas en "destino". Es bloqueante; lanza CancellationException si se cancela.
+     */
+    static Resultado exportar(Path destino, int usuarioId, FiltroTareas filtro, List<ConsultasTareas.Orden> orden,
+                              Consumer<Progreso> alAvanzar, Exportacion control) throws IOException, SQLException {
+        long inicio = System.nanoTime();
+        Formato formato = formatoDe(destino);
+        Path carpeta = destino.toAbsolutePath().getParent();
+        /* El total solo sirve para la barra de progreso: si cambia mientras se exporta, no pasa nada */
+        long total = ConsultasTareas.contar(usuarioId, filtro);
+        Path temporal = Files.createTempFile(carpeta, ".taskeasy-exportacion-", ".tmp");
+
+        boolean terminada = false;
+        long tareas = 0;
+        try {
+            try (EscritorCanal escritor = new EscritorCanal(FileChannel.open(temporal, StandardOpenOption.WRITE));
+                 Stream<Tarea> filas = ConsultasTareas.recorrer(usuarioId, filtro, orden)) {
+
+                escribirCabecera(escritor, formato);
+                Iterator<Tarea> iterador = filas.iterator();
+                while (iterador.hasNext()) {
+                    if (control != null && control.cancelada) throw new CancellationException("Exportación cancelada");
+
+                    escribirTarea(escritor, formato, iterador.next(), tareas == 0);
+                    tareas++;
+                    if (tareas % AVISO_CADA == 0) alAvanzar.accept(new Progreso(tareas, total));
+                }
+                escribirPie(escritor, formato);
+                escritor.terminar();
+
+            } catch (BaseDeDatos.ExcepcionConsulta excepcion) {
+                throw excepcion.getCause();
+            }
+
+            /* Con el archivo ya cerrado: en Windows no se puede mover un archivo abierto */
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            terminada = true;
+            alAvanzar.accept(new Progreso(tareas, tareas));
+            return new Resultado(tareas, Files.size(destino), (System.nanoTime() - inicio) / 1_000_000);
+
+        } finally {
+            if (!terminada) Files.deleteIfExists(temporal);
+        }
+    }
+
+    /* ---- Formatos ---- */
+
+    private static void escribirCabecera(EscritorCanal escritor, Formato formato) throws IOException {
+        if (formato == Formato.CSV) {
+            escritor.escribir(String.join(",", COLUMNAS)).escribir("\r\n");
+        } else {
+            escritor.escribir("[\n");
+        }
+    }
+
+    private static void escribirTarea(EscritorCanal escritor, Formato formato, Tarea tarea, boolean primera) throws IOException {
+        String[] valores = {
+                tarea.getTitulo(),
+                tarea.getDescripcion(),
+                tarea.getFecha() != null ? tarea.getFecha().toString() : null,
+                tarea.getEstado().toString(),
+                categoria(tarea.getIdCategoria())
+        };
+
+        if (formato == Formato.CSV) {
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) escritor.escribir(",");
+                escribirCsv(escritor, valores[i]);
+            }
+            escritor.escribir("\r\n");
+            return;
+        }
+
+        escritor.escribir(primera ? "  {" : ",\n  {");
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) escritor.escribir(", ");
+            escritor.escribir("\"").escribir(COLUMNAS[i]).escribir("\": ");
+            escribirJson(escritor, valores[i]);
+        }
+        escritor.escribir("}");
+    }
+
+    /*
+     Nombre de la categoría, o null si la tarea no tiene. No se exporta como "Sin categoría":
+     al importarlo se asignaría la categoría de ese nombre, que no es lo mismo que no tener ninguna.
+     */
+    private static String categoria(int idCategoria) {
+        Categoria categoria = RegistroCategorias.buscar(idCategoria);
+        return categoria != null ? categoria.getNombre() : null;
+    }
+
+    private static void escribirPie(EscritorCanal escritor, Formato formato) throws IOException {
+        if (formato == Formato.JSON) escritor.escribir("\n]\n");
+    }
+
+    /*
+     Campo CSV (RFC 4180): entre comillas si lleva coma, comillas o saltos de línea, con "" por cada comilla.
+     */
+    private static void escribirCsv(EscritorCanal escritor, String valor) throws IOException {
+        if (valor == null || valor.isEmpty()) return;
+        boolean comillas = false;
+        for (int i = 0; i < valor.length() && !comillas; i++) {
+            char c = valor.charAt(i);
+            comillas = c == ',' || c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            escritor.escribir(valor);
+        } else {
+            escritor.escribir("\"").escribir(valor.replace("\"", "\"\"")).escribir("\"");
+        }
+    }
+
+    /*
+     Cadena JSON con sus escapes, o null.
+     */
+    private static void escribirJson(EscritorCanal escritor, String valor) throws IOException {
+        if (valor == null) {
+            escritor.escribir("null");
+            return;
+        }
+        StringBuilder texto = new StringBuilder(valor.length() + 2).append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> texto.append("\\\"");
+                case '\\' -> texto.append("\\\\");
+                case '\n' -> texto.append("\\n");
+                case '\r' -> texto.append("\\r");
+                case '\t' -> texto.append("\\t");
+                default -> {
+                    if (c < 0x20) texto.append(String.format("\\u%04x", (int) c));
+                    else texto.append(c);
+                }
+            }
+        }
+        escritor.escribir(texto.append('"'));
+    }
+
+    /* ------------------------------------------
+
+                Clase EscritorCanal
+
+       ------------------------------------------
+     Escribe texto en UTF-8 en un FileChannel a través de un ByteBuffer directo de tamaño fijo.
+     El texto se codifica directamente en el buffer, sin crear un byte[] por cada cadena.
+     */
+    private static final class EscritorCanal implements Closeable {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder();
+
+        EscritorCanal(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        EscritorCanal escribir(CharSequence texto) throws IOException {
+            CharBuffer caracteres = CharBuffer.wrap(texto);
+            while (true) {
+                CoderResult resultado = codificador.encode(caracteres, buffer, false);
+                if (resultado.isOverflow()) {
+                    volcar();
+                } else if (resultado.isError()) {
+                    resultado.throwException();
+                } else {
+                    return this;
+                }
+            }
+        }
+
+        private void volcar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) canal.write(buffer);
+            buffer.clear();
+        }
+
+        /*
+         Vuelca lo que queda en el buffer y fuerza los datos a disco. Se llama al terminar de escribir;
+         si la exportación se cancela o falla no hace falta, el archivo temporal se borra.
+         */
+        void terminar() throws IOException {
+            volcar();
+            canal.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
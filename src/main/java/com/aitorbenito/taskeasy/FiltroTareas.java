@@ -0,0 +1,94 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.time y java.util
+*/
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/* ------------------------------------------
+
+            Record FiltroTareas
+
+   ------------------------------------------
+ Filtro de la tabla principal: estado, categoría y rango de fechas.
+ Cada campo a null significa "sin filtrar por eso".
+
+ El filtro no se aplica en memoria sobre todas las tareas: se traduce a condiciones SQL
+ con parámetros ("AND id_estado = ?"...) que ConsultasTareas añade a sus consultas, así SQLite
+ usa los índices (usuario_id, id_estado), (usuario_id, id_categoria) y (usuario_id, fecha)
+ y solo devuelve las tareas que pasan el filtro.
+
+ La categoría "Sin categoría" (RegistroCategorias.SIN_CATEGORIA) también deja pasar las tareas
+ con id_categoria NULL: en la tabla se ven igual, con ese nombre.
+
+ acepta(...) hace la misma comprobación en Java, para decidir si una tarea recién
+ guardada debe aparecer en la tabla sin volver a consultar la base de datos.
+ */
+record FiltroTareas(EstadoTarea estado, Integer idCategoria, LocalDate desde, LocalDate hasta) {
+
+    /* Filtro que deja pasar todas las tareas */
+    static final FiltroTareas NINGUNO = new FiltroTareas(null, null, null, null);
+
+    boolean vacio() {
+        return estado == null && idCategoria == null && desde == null && hasta == null;
+    }
+
+    /* ----------------------------------
+
+                Metodo sql
+
+       ----------------------------------
+     Condiciones que se añaden al WHERE, empezando por " AND", o "" si el filtro está vacío.
+     "prefijo" es el alias de la tabla tareas en la consulta ("t." o "").
+     Los valores van en parametros(), en el mismo orden.
+     */
+    String sql(String prefijo) {
+        StringBuilder condiciones = new StringBuilder();
+        if (estado != null) condiciones.append(" AND ").append(prefijo).append("id_estado = ?");
+        if (idCategoria != null) {
+            condiciones.append(" AND ").append(incluyeSinCategoria()
+                    ? "(" + prefijo + "id_categoria = ? OR " + prefijo + "id_categoria IS NULL)"
+                    : prefijo + "id_categoria = ?");
+        }
+        if (desde != null) condiciones.append(" AND ").append(prefijo).append("fecha >= ?");
+        if (hasta != null) condiciones.append(" AND ").append(prefijo).append("fecha <= ?");
+        return condiciones.toString();
+    }
+
+    List<Object> parametros() {
+        List<Object> parametros = new ArrayList<>(4);
+        if (estado != null) parametros.add(estado);
+        if (idCategoria != null) parametros.add(idCategoria);
+        if (desde != null) parametros.add(desde);
+        if (hasta != null) parametros.add(hasta);
+        return parametros;
+    }
+
+    /*
+     true si la tarea cumple el filtro. Las tareas sin fecha no entran en ningún rango de fechas,
+     igual que en SQL (NULL nunca es >= ni <= que nada).
+     */
+    boolean acepta(Tarea tarea) {
+        if (estado != null && estado != tarea.getEstado()) return false;
+        /* Una tarea sin categoría tiene getIdCategoria() == 0 */
+        if (idCategoria != null && idCategoria != tarea.getIdCategoria()
+                && !(tarea.getIdCategoria() == 0 && incluyeSinCategoria())) return false;
+
+        LocalDate fecha = tarea.getFecha();
+        if ((desde != null || hasta != null) && fecha == null) return false;
+        if (desde != null && fecha.isBefore(desde)) return false;
+        if (hasta != null && fecha.isAfter(hasta)) return false;
+        return true;
+    }
+
+    /*
+     true si la categoría del filtro es "Sin categoría", que incluye también las tareas sin ninguna.
+     */
+    private boolean incluyeSinCategoria() {
+        Categoria categoria = RegistroCategorias.buscar(idCategoria);
+        return categoria != null && RegistroCategorias.SIN_CATEGORIA.equals(categoria.getNombre());
+    }
+}
@@ -0,0 +1,307 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.sql y concurrencia
+*/
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* ------------------------------------------
+
+            Clase GestorConexiones
+
+   ------------------------------------------
+ Mantiene abiertas las conexiones con SQLite durante toda la vida de la aplicación,
+ en lugar de abrir una conexión nueva en cada llamada a BaseDeDatos.
+
+ - Una única conexión de escritura, protegida por un candado (SQLite solo admite un escritor a la vez).
+ - Un pequeño pool acotado de conexiones de solo lectura, que se crean bajo demanda.
+ - Todas se abren con la configuración del perfil de durabilidad (modo WAL, PRAGMAs de caché...).
+ - Antes de entregar una conexión se comprueba que sigue siendo válida; si no, se descarta y se abre otra.
+ - Cada conexión tiene su propia caché de sentencias preparadas (CacheSentencias).
+ - Al cerrar la aplicación se cierran todas (Main.stop → BaseDeDatos.cerrar), y antes se ejecuta
+   PRAGMA optimize para que SQLite ponga al día las estadísticas de las tablas (sqlite_stat1).
+ */
+public final class GestorConexiones implements AutoCloseable {
+
+    /*
+     Operación que se ejecuta con una conexión prestada.
+     La conexión NO debe cerrarse dentro de la operación, la devuelve el gestor.
+     */
+    @FunctionalInterface
+    public interface OperacionConexion<T> {
+        T aplicar(Connection conexion) throws SQLException;
+    }
+
+    /* Segundos que esperamos por una conexión libre o por la comprobación de salud */
+    private static final int ESPERA_SEGUNDOS = 5;
+
+    /* Sentencias preparadas que se guardan como máximo por cada conexión */
+    private static final int SENTENCIAS_POR_CONEXION = 32;
+
+    /* Filas que mira ANALYZE por índice en PRAGMA optimize: con 400 tarda milisegundos aunque haya millones */
+    private static final int LIMITE_ANALISIS = 400;
+
+    private final String url;
+    private final int maxLectores;
+    private final PerfilDurabilidad perfil;
+
+    /* Conexión de escritura y su candado */
+    private final ReentrantLock candadoEscritura = new ReentrantLock();
+    private Connection escritor;
+
+    /* Conexiones de lectura libres y número total creadas hasta ahora */
+    private final BlockingQueue<Connection> lectoresLibres;
+    private final AtomicInteger lectoresCreados = new AtomicInteger();
+
+    /* Caché de sentencias de cada conexión abierta y contadores comunes a todas */
+    private final Map<Connection, CacheSentencias> caches = new ConcurrentHashMap<>();
+    private final LongAdder aciertosCache = new LongAdder();
+    private final LongAdder fallosCache = new LongAdder();
+
+    private volatile boolean cerrado = false;
+
+    /*
+     Lo que se espera por una conexión: el candado de escritura (otro hilo está escribiendo)
+     o una conexión de lectura del pool (incluida la comprobación de salud o abrir una nueva).
+     */
+    private static final Metricas.Histograma ESPERA_ESCRITURA = Metricas.histograma("bd.espera_conexion_escritura");
+    private static final Metricas.Histograma ESPERA_LECTURA = Metricas.histograma("bd.espera_conexion_lectura");
+
+    public GestorConexiones(String url, int maxLectores, PerfilDurabilidad perfil) {
+        this.url = url;
+        this.perfil = perfil;
+        this.maxLectores = Math.max(1, maxLectores);
+        this.lectoresLibres = new ArrayBlockingQueue<>(this.maxLectores);
+    }
+
+    /* ----------------------------------
+
+            Metodo conEscritor
+
+       ----------------------------------
+     Ejecuta la operación con la conexión de escritura (INSERT, UPDATE, DELETE, DDL).
+     Las llamadas de distintos hilos se ejecutan de una en una.
+     */
+    public <T> T conEscritor(OperacionConexion<T> operacion) throws SQLException {
+        comprobarAbierto();
+        long inicio = System.nanoTime();
+        candadoEscritura.lock();
+        ESPERA_ESCRITURA.registrarDesde(inicio);
+        try {
+            if (!esValida(escritor)) {
+                cerrarSilencioso(escritor);
+                escritor = perfil.configEscritura().createConnection(url);
+            }
+            return operacion.aplicar(escritor);
+        } finally {
+            candadoEscritura.unlock();
+        }
+    }
+
+    /* ----------------------------------
+
+            Metodo conLector
+
+       ----------------------------------
+     Ejecuta la operación con una conexión de solo lectura del pool (SELECT).
+     */
+    public <T> T conLector(OperacionConexion<T> operacion) throws SQLException {
+        Connection conexion = prestarLector();
+        try {
+            return operacion.aplicar(conexion);
+        } finally {
+            devolverLector(conexion);
+        }
+    }
+
+    /*
+     Saca una conexión de lectura del pool. Si no hay libres y aún no se ha llegado
+     al máximo se crea una nueva; si se ha llegado, se espera a que otro hilo devuelva una.
+     */
+    Connection prestarLector() throws SQLException {
+        long inicio = System.nanoTime();
+        try {
+            return prestarLectorSinMedir();
+        } finally {
+            ESPERA_LECTURA.registrarDesde(inicio);
+        }
+    }
+
+    private Connection prestarLectorSinMedir() throws SQLException {
+        comprobarAbierto();
+
+        Connection conexion = lectoresLibres.poll();
+
+        if (conexion == null && lectoresCreados.incrementAndGet() > maxLectores) {
+            lectoresCreados.decrementAndGet();
+            try {
+                conexion = lectoresLibres.poll(ESPERA_SEGUNDOS, TimeUnit.SECONDS);
+            } catch (InterruptedException excepcion) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrumpido esperando una conexión de lectura", excepcion);
+            }
+            if (conexion == null) {
+                throw new SQLException("No hay conexiones de lectura disponibles");
+            }
+        } else if (conexion == null) {
+            return abrirLector();
+        }
+
+        /* Comprobación de salud: si la conexión ya no sirve la sustituimos por otra */
+        if (!esValida(conexion)) {
+            cerrarSilencioso(conexion);
+            return abrirLector();
+        }
+        return conexion;
+    }
+
+    /*
+     Devuelve la conexión al pool. Si el gestor ya está cerrado la cerramos directamente.
+     */
+    void devolverLector(Connection conexion) {
+        if (cerrado || !lectoresLibres.offer(conexion)) {
+            lectoresCreados.decrementAndGet();
+            cerrarSilencioso(conexion);
+        }
+    }
+
+    /* ----------------------------------
+
+              Metodo preparar
+
+       ----------------------------------
+     Devuelve una sentencia preparada de la caché de esa conexión.
+     Solo debe llamarse con una conexión prestada por este gestor, y la sentencia
+     no se cierra: se cierran sus ResultSet.
+     */
+    public PreparedStatement preparar(Connection conexion, String sql) throws SQLException {
+        return caches.computeIfAbsent(conexion,
+                c -> new CacheSentencias(c, SENTENCIAS_POR_CONEXION, aciertosCache, fallosCache)
+        ).preparar(sql);
+    }
+
+    /*
+     Aciertos y fallos acumulados de las cachés de sentencias de todas las conexiones.
+     */
+    public CacheSentencias.Estadisticas estadisticasCache() {
+        return new CacheSentencias.Estadisticas(aciertosCache.sum(), fallosCache.sum());
+    }
+
+    /*
+     Conexiones de lectura abiertas ahora mismo (libres y prestadas).
+     */
+    public int lectoresAbiertos() {
+        return lectoresCreados.get();
+    }
+
+    public PerfilDurabilidad perfil() {
+        return perfil;
+    }
+
+    private Connection abrirLector() throws SQLException {
+        try {
+            return perfil.configLectura().createConnection(url);
+        } catch (SQLException excepcion) {
+            lectoresCreados.decrementAndGet();
+            throw excepcion;
+        }
+    }
+
+    /* ----------------------------------
+
+                Metodo close
+
+       ----------------------------------
+     Cierra la conexión de escritura y todas las de lectura libres.
+     Las que estén prestadas en ese momento se cierran al devolverse.
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+
+        /*
+         Primero las de lectura libres: al sacarlas del pool ya no las puede usar ningún otro hilo,
+         así que se pueden leer sus cachés (las consultas para optimizar) antes de cerrarlas.
+         Las prestadas no se tocan: su caché la está usando otro hilo.
+         */
+        Set<String> consultas = new HashSet<>();
+        Connection conexion;
+        while ((conexion = lectoresLibres.poll()) != null) {
+            CacheSentencias cache = caches.get(conexion);
+            if (cache != null) consultas.addAll(cache.sql());
+            lectoresCreados.decrementAndGet();
+            cerrarSilencioso(conexion);
+        }
+
+        candadoEscritura.lock();
+        try {
+            optimizar(consultas);
+            cerrarSilencioso(escritor);
+            escritor = null;
+        } finally {
+            candadoEscritura.unlock();
+        }
+    }
+
+    /*
+     PRAGMA optimize con la conexión de escritura, justo antes de cerrarla: SQLite vuelve a hacer ANALYZE
+     de las tablas cuyas estadísticas faltan o se han quedado viejas (la tabla ha crecido mucho desde el último).
+     Solo tiene en cuenta las tablas que ha planificado esa conexión, y las consultas van por las de lectura,
+     que no pueden escribir estadísticas. Por eso antes se preparan en la de escritura, sin ejecutarlas,
+     las "consultas" de las cachés de las de lectura (close las recoge): son las que se han usado en esta sesión.
+     */
+    private void optimizar(Set<String> consultas) {
+        if (!esValida(escritor)) return;
+
+        long inicio = System.nanoTime();
+        try (Statement stat = escritor.createStatement()) {
+            for (String sql : consultas) {
+                escritor.prepareStatement(sql).close();
+            }
+            stat.execute("PRAGMA analysis_limit = " + LIMITE_ANALISIS);
+            stat.execute("PRAGMA optimize");
+        } catch (SQLException excepcion) {
+            Metricas.error("optimizar base de datos", excepcion);
+        }
+        Metricas.histograma("bd.optimizar").registrarDesde(inicio);
+    }
+
+    private void comprobarAbierto() throws SQLException {
+        if (cerrado) throw new SQLException("El gestor de conexiones está cerrado");
+    }
+
+    private static boolean esValida(Connection conexion) {
+        try {
+            return conexion != null && !conexion.isClosed() && conexion.isValid(ESPERA_SEGUNDOS);
+        } catch (SQLException excepcion) {
+            return false;
+        }
+    }
+
+    private void cerrarSilencioso(Connection conexion) {
+        if (conexion == null) return;
+
+        CacheSentencias cache = caches.remove(conexion);
+        if (cache != null) cache.close();
+
+        try {
+            conexion.close();
+        } catch (SQLException excepcion) {
+            Metricas.error("cerrar conexión", excepcion);
+        }
+    }
+}
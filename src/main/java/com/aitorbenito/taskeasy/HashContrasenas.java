@@ -0,0 +1,198 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports javax.crypto
+*/
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/*
+Imports java.security, java.nio y java.util
+*/
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/* ------------------------------------------
+
+            Clase HashContrasenas
+
+   ------------------------------------------
+ Hash de las contraseñas de la tabla 'usuarios' con PBKDF2 (HMAC-SHA256) y una sal aleatoria por usuario.
+
+ Cada hash se guarda en la columna 'password' como texto, con todo lo necesario para comprobarlo:
+     pbkdf2-sha256$<iteraciones>$<sal en Base64>$<hash en Base64>
+
+ - El coste (número de iteraciones) se elige en "taskeasy.properties" con la línea
+       pbkdf2_iteraciones = 310000
+   o con -Dtaskeasy.pbkdf2_iteraciones=..., que tiene prioridad. Cada hash guarda las suyas,
+   así que cambiar el coste no invalida las contraseñas que ya existen: se rehacen en el siguiente login.
+ - Las filas antiguas tienen la contraseña en claro; verificar() también las acepta
+   y necesitaRehash() avisa para guardarlas ya con hash (ConsultasUsuarios.login).
+
+ Calcular un hash tarda del orden de cien milisegundos a propósito, por eso la interfaz
+ nunca lo hace en su hilo: se usa enSegundoPlano(...), con un ejecutor propio de pocos hilos
+ para que varios logins a la vez no se coman toda la CPU ni esperen a las consultas.
+ */
+final class HashContrasenas {
+
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final String PREFIJO = "pbkdf2-sha256";
+    private static final String SEPARADOR = "$";
+
+    private static final int ITERACIONES_POR_DEFECTO = 310_000;
+    /* Por debajo de esto el hash ya no protege nada, aunque se configure así */
+    private static final int ITERACIONES_MINIMAS = 10_000;
+    private static final int BYTES_SAL = 16;
+    private static final int BITS_HASH = 256;
+
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    /*
+     Hilos para calcular hashes: la mitad de los núcleos, como mínimo uno.
+     Son daemon para que no impidan cerrar la aplicación.
+     */
+    private static final ExecutorService EJECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+            tarea -> {
+                Thread hilo = new Thread(tarea, "taskeasy-hash");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+
+    /*
+     Hash con el que se compara cuando el usuario no existe, para que la respuesta tarde lo mismo
+     y no se pueda saber por el tiempo si un nombre o email está registrado. Se calcula la primera vez.
+     */
+    private static volatile String hashFicticio;
+
+    private HashContrasenas() {}
+
+    /*
+     Iteraciones configuradas para los hashes nuevos.
+     */
+    static int iteraciones() {
+        return Configuracion.ITERACIONES;
+    }
+
+    /*
+     La opción "pbkdf2_iteraciones" se lee y se comprueba una sola vez, la primera vez que hace falta
+     (no al cargar la clase: hash(password, iteraciones) se usa sin base de datos, en BenchmarkContrasenas).
+     Si no es un número se informa una vez con Metricas.error y se usa ITERACIONES_POR_DEFECTO.
+     */
+    private static final class Configuracion {
+        static final int ITERACIONES = leerIteraciones();
+
+        private static int leerIteraciones() {
+            String valor = BaseDeDatos.configuracion("pbkdf2_iteraciones");
+            if (valor == null || valor.isBlank()) return ITERACIONES_POR_DEFECTO;
+            try {
+                return Math.max(ITERACIONES_MINIMAS, Integer.parseInt(valor.trim()));
+            } catch (NumberFormatException excepcion) {
+                Metricas.error("leer pbkdf2_iteraciones", new IllegalArgumentException(
+                        "pbkdf2_iteraciones no válido (" + valor + "), se usa " + ITERACIONES_POR_DEFECTO, excepcion));
+                return ITERACIONES_POR_DEFECTO;
+            }
+        }
+    }
+
+    /* ----------------------------------
+
+                Metodo hash
+
+       ----------------------------------
+     Hash nuevo de la contraseña, con una sal aleatoria y las iteraciones configuradas.
+     */
+    static String hash(String password) {
+        return hash(password, iteraciones());
+    }
+
+    static String hash(String password, int iteraciones) {
+        byte[] sal = new byte[BYTES_SAL];
+        ALEATORIO.nextBytes(sal);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIJO + SEPARADOR + iteraciones
+                + SEPARADOR + base64.encodeToString(sal)
+                + SEPARADOR + base64.encodeToString(pbkdf2(password, sal, iteraciones));
+    }
+
+    /* ----------------------------------
+
+               Metodo verificar
+
+       ----------------------------------
+     true si la contraseña corresponde al valor guardado en la columna 'password',
+     tanto si es un hash como si es una contraseña antigua en claro.
+     La comparación es de tiempo constante (MessageDigest.isEqual).
+     */
+    static boolean verificar(String password, String almacenado) {
+        if (almacenado == null) return false;
+        if (!esHash(almacenado)) {
+            return MessageDigest.isEqual(
+                    password.getBytes(StandardCharsets.UTF_8), almacenado.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] partes = almacenado.split("\\" + SEPARADOR);
+        if (partes.length != 4) return false;
+        try {
+            int iteraciones = Integer.parseInt(partes[1]);
+            byte[] sal = Base64.getDecoder().decode(partes[2]);
+            byte[] esperado = Base64.getDecoder().decode(partes[3]);
+            return MessageDigest.isEqual(pbkdf2(password, sal, iteraciones), esperado);
+        } catch (IllegalArgumentException excepcion) {
+            /* Número o Base64 mal formados: el valor guardado está dañado */
+            return false;
+        }
+    }
+
+    /*
+     Gasta el mismo tiempo que verificar() cuando no hay ningún usuario con el que comparar.
+     */
+    static void verificarFicticio(String password) {
+        String ficticio = hashFicticio;
+        if (ficticio == null) {
+            ficticio = hash("taskeasy-usuario-inexistente");
+            hashFicticio = ficticio;
+        }
+        verificar(password, ficticio);
+    }
+
+    static boolean esHash(String almacenado) {
+        return almacenado.startsWith(PREFIJO + SEPARADOR);
+    }
+
+    /*
+     true si el valor guardado hay que rehacerlo con hash(): está en claro o tiene otro coste.
+     */
+    static boolean necesitaRehash(String almacenado) {
+        if (!esHash(almacenado)) return true;
+        String[] partes = almacenado.split("\\" + SEPARADOR);
+        return partes.length != 4 || !partes[1].equals(String.valueOf(iteraciones()));
+    }
+
+    /*
+     Ejecuta un cálculo de hashes en el ejecutor propio de esta clase.
+     */
+    static <T> CompletableFuture<T> enSegundoPlano(Supplier<T> calculo) {
+        return CompletableFuture.supplyAsync(calculo, EJECUTOR);
+    }
+
+    private static byte[] pbkdf2(String password, byte[] sal, int iteraciones) {
+        PBEKeySpec especificacion = new PBEKeySpec(password.toCharArray(), sal, iteraciones, BITS_HASH);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(especificacion).getEncoded();
+        } catch (GeneralSecurityException excepcion) {
+            /* PBKDF2WithHmacSHA256 viene en todas las JVM desde Java 8: no debería pasar nunca */
+            throw new IllegalStateException(ALGORITMO + " no disponible", excepcion);
+        } finally {
+            especificacion.clearPassword();
+        }
+    }
+}
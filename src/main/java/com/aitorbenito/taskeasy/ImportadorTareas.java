@@ -0,0 +1,427 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.io y java.nio
+*/
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/*
+Imports java.text, java.time y java.util
+*/
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/* ------------------------------------------
+
+            Clase ImportadorTareas
+
+   ------------------------------------------
+ Importa tareas de un archivo CSV o JSON (de otras aplicaciones) al usuario de la sesión.
+
+ El archivo nunca se carga entero en memoria:
+ 1. LectorCsv / LectorJson leen los registros de uno en uno y se agrupan en bloques de REGISTROS_POR_BLOQUE.
+ 2. Cada bloque se convierte y se valida (fechas, estados, categorías) en paralelo, en un hilo por núcleo.
+ 3. Los bloques ya validados se escriben en orden con BaseDeDatos.insertarTareasLote,
+    en transacciones de "importacion_lote" tareas (5000 por defecto, configurable en taskeasy.properties).
+ Como mucho hay BLOQUES_EN_VUELO bloques leídos sin escribir: si la base de datos va más lenta que la
+ lectura, la lectura espera. Así la memoria no depende del tamaño del archivo.
+
+ Las filas con errores (sin título, fecha o estado que no se entienden...) no se importan;
+ se cuentan y se guardan los primeros MAX_ERRORES mensajes para mostrarlos al terminar.
+ Cada transacción que termina ya está guardada: si la importación falla o se cancela a mitad,
+ las tareas de las transacciones anteriores se quedan.
+ */
+final class ImportadorTareas {
+
+    /*
+     Columnas que se importan, por su posición en los registros de los lectores.
+     */
+    static final int TITULO = 0;
+    static final int DESCRIPCION = 1;
+    static final int FECHA = 2;
+    static final int ESTADO = 3;
+    static final int CATEGORIA = 4;
+    static final int NUMERO_COLUMNAS = 5;
+
+    /*
+     Nombres de columna (o clave del JSON) aceptados, en minúsculas, sin tildes ni espacios,
+     en español y en inglés, que es lo que exportan la mayoría de aplicaciones.
+     */
+    private static final Map<String, Integer> NOMBRES_COLUMNAS = Map.ofEntries(
+            Map.entry("titulo", TITULO), Map.entry("title", TITULO), Map.entry("nombre", TITULO), Map.entry("name", TITULO),
+            Map.entry("descripcion", DESCRIPCION), Map.entry("description", DESCRIPCION),
+            Map.entry("notas", DESCRIPCION), Map.entry("notes", DESCRIPCION),
+            Map.entry("fecha", FECHA), Map.entry("fechalimite", FECHA), Map.entry("date", FECHA),
+            Map.entry("duedate", FECHA), Map.entry("due", FECHA),
+            Map.entry("estado", ESTADO), Map.entry("status", ESTADO), Map.entry("state", ESTADO),
+            Map.entry("categoria", CATEGORIA), Map.entry("category", CATEGORIA)
+    );
+
+    /* Fechas en ISO (2025-05-01) o como las escribe una hoja de cálculo en español (01/05/2025) */
+    private static final DateTimeFormatter FECHA_ESPANOLA =
+            DateTimeFormatter.ofPattern("d/M/uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+    private static final int LOTE_POR_DEFECTO = 5_000;
+    private static final int REGISTROS_POR_BLOQUE = 1_000;
+    private static final int MAX_ERRORES = 100;
+
+    private static final int HILOS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int BLOQUES_EN_VUELO = 2 * HILOS;
+
+    /* "importacion_lote" se lee y se comprueba una sola vez, al cargar la clase */
+    private static final int LOTE = leerTamanoLote();
+
+    /*
+     Lector de registros de un formato. Cada registro tiene NUMERO_COLUMNAS valores
+     (null si la columna no está en el archivo).
+     */
+    interface Lector extends Closeable {
+        /* Siguiente registro, o null al llegar al final */
+        String[] siguiente() throws IOException;
+
+        /* Número del último registro leído (1 el primero), para los mensajes de error */
+        long registro();
+    }
+
+    /*
+     Avance de la importación: tareas importadas, filas descartadas y fracción del archivo leída (0 a 1).
+     */
+    record Progreso(long importadas, long descartadas, double fraccion) {}
+
+    /*
+     Resultado final de la importación.
+     */
+    record Resultado(long importadas, long descartadas, List<String> errores, long milisegundos) {}
+
+    /*
+     Importación en curso: su resultado y la forma de cancelarla.
+     Si se cancela, el futuro termina con CancellationException.
+     */
+    static final class Importacion {
+        private final CompletableFuture<Resultado> resultado = new CompletableFuture<>();
+        private volatile boolean cancelada = false;
+
+        CompletableFuture<Resultado> resultado() {
+            return resultado;
+        }
+
+        void cancelar() {
+            cancelada = true;
+        }
+    }
+
+    /*
+     Bloque de registros ya validados: parámetros del INSERT y mensajes de las filas descartadas.
+     */
+    private record Bloque(List<Object[]> filas, List<String> errores) {}
+
+    /*
+     Categorías existentes: por nombre (en minúsculas) y sus ids, por separado para que no se mezclen.
+     */
+    private record Categorias(Map<String, Integer> porNombre, Set<Integer> ids) {
+        static Categorias de(List<Categoria> todas) {
+            Map<String, Integer> porNombre = new HashMap<>();
+            Set<Integer> ids = new HashSet<>();
+            for (Categoria categoria : todas) {
+                porNombre.put(categoria.getNombre().trim().toLowerCase(Locale.ROOT), categoria.getId());
+                ids.add(categoria.getId());
+            }
+            return new Categorias(porNombre, ids);
+        }
+    }
+
+    private ImportadorTareas() {}
+
+    /*
+     Posición de la columna con ese nombre, o -1 si no se importa.
+     */
+    static int columna(String nombre) {
+        String normalizado = Normalizer.normalize(nombre.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("[^a-z]", "");
+        return NOMBRES_COLUMNAS.getOrDefault(normalizado, -1);
+    }
+
+    /*
+     Tareas por transacción configuradas en "importacion_lote".
+     */
+    static int tamanoLote() {
+        return LOTE;
+    }
+
+    /*
+     Si no es un número se informa una vez con Metricas.error y se usa LOTE_POR_DEFECTO.
+     */
+    private static int leerTamanoLote() {
+        String valor = BaseDeDatos.configuracion("importacion_lote");
+        if (valor == null || valor.isBlank()) return LOTE_POR_DEFECTO;
+        try {
+            return Math.max(1, Integer.parseInt(valor.trim()));
+        } catch (NumberFormatException excepcion) {
+            Metricas.error("leer importacion_lote", new IllegalArgumentException(
+                    "importacion_lote no válido (" + valor + "), se usa " + LOTE_POR_DEFECTO, excepcion));
+            return LOTE_POR_DEFECTO;
+        }
+    }
+
+    /* ----------------------------------
+
+          Metodo importarEnSegundoPlano
+
+       ----------------------------------
+     Lanza importar en un hilo aparte. alAvanzar se llama desde ese hilo después de cada transacción.
+     */
+    static Importacion importarEnSegundoPlano(Path archivo, int usuarioId, Consumer<Progreso> alAvanzar) {
+        Importacion importacion = new Importacion();
+        Thread.ofVirtual().name("taskeasy-importacion").start(() -> {
+            try {
+                importacion.resultado.complete(importar(archivo, usuarioId, alAvanzar, importacion));
+            } catch (Exception excepcion) {
+                importacion.resultado.completeExceptionally(excepcion);
+            }
+        });
+        return importacion;
+    }
+
+    /* ----------------------------------
+
+               Metodo importar
+
+       ----------------------------------
+     Importa el archivo (.json como JSON; cualquier otro, como CSV) en UTF-8 y devuelve el resultado.
+     Es bloqueante: desde la interfaz se usa importarEnSegundoPlano.
+     Lanza CancellationException si se cancela; la transacción que esté escribiéndose termina antes.
+     */
+    static Resultado importar(Path archivo, int usuarioId, Consumer<Progreso> alAvanzar,
+                              Importacion control) throws IOException, SQLException {
+        long inicio = System.nanoTime();
+        long tamano = Math.max(1, Files.size(archivo));
+        int lote = tamanoLote();
+
+        /* Las categorías se resuelven en memoria, por nombre o por id */
+        Categorias categorias = Categorias.de(RegistroCategorias.todas());
+
+        ExecutorService validadores = Executors.newFixedThreadPool(HILOS, tarea -> {
+            Thread hilo = new Thread(tarea, "taskeasy-importacion-validacion");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        /*
+         El archivo se abre dentro del try: los constructores de los lectores ya leen la cabecera
+         (o el "[" del JSON) y, si falla, el archivo se cierra igualmente.
+         */
+        try (ContadorBytes bytes = new ContadorBytes(Files.newInputStream(archivo));
+             Lector lector = nuevoLector(archivo, new InputStreamReader(bytes, StandardCharsets.UTF_8))) {
+
+            Deque<Future<Bloque>> enVuelo = new ArrayDeque<>();
+            List<Object[]> pendientes = new ArrayList<>(lote);
+            List<String> errores = new ArrayList<>();
+            long importadas = 0;
+            long descartadas = 0;
+
+            boolean finDelArchivo = false;
+            while (!finDelArchivo || !enVuelo.isEmpty()) {
+                comprobarCancelada(control);
+
+                /* Lee y manda a validar bloques hasta tener BLOQUES_EN_VUELO */
+                while (!finDelArchivo && enVuelo.size() < BLOQUES_EN_VUELO) {
+                    List<String[]> registros = new ArrayList<>(REGISTROS_POR_BLOQUE);
+                    long primerRegistro = lector.registro() + 1;
+                    String[] registro;
+                    while (registros.size() < REGISTROS_POR_BLOQUE && (registro = lector.siguiente()) != null) {
+                        registros.add(registro);
+                    }
+                    finDelArchivo = registros.size() < REGISTROS_POR_BLOQUE;
+                    if (!registros.isEmpty()) {
+                        enVuelo.add(validadores.submit(() -> validar(registros, primerRegistro, usuarioId, categorias)));
+                    }
+                }
+                if (enVuelo.isEmpty()) break;
+
+                /* Recoge el bloque más antiguo (en orden) y escribe cada vez que se junta un lote */
+                Bloque bloque = esperar(enVuelo.removeFirst());
+                descartadas += bloque.errores().size();
+                for (String error : bloque.errores()) {
+                    if (errores.size() < MAX_ERRORES) errores.add(error);
+                }
+                pendientes.addAll(bloque.filas());
+
+                boolean ultimo = finDelArchivo && enVuelo.isEmpty();
+                while (pendientes.size() >= lote || (ultimo && !pendientes.isEmpty())) {
+                    comprobarCancelada(control);
+                    List<Object[]> transaccion = pendientes.subList(0, Math.min(lote, pendientes.size()));
+                    importadas += BaseDeDatos.insertarTareasLote(transaccion);
+                    transaccion.clear();
+                    /* Si se ha cancelado mientras se escribía, ya no se avisa a nadie */
+                    comprobarCancelada(control);
+                    alAvanzar.accept(new Progreso(importadas, descartadas, Math.min(1.0, (double) bytes.leidos / tamano)));
+                }
+            }
+
+            alAvanzar.accept(new Progreso(importadas, descartadas, 1.0));
+            return new Resultado(importadas, descartadas, errores, (System.nanoTime() - inicio) / 1_000_000);
+
+        } finally {
+            validadores.shutdownNow();
+        }
+    }
+
+    private static void comprobarCancelada(Importacion control) {
+        if (control != null && control.cancelada) throw new CancellationException("Importación cancelada");
+    }
+
+    /*
+     Lector según la extensión del archivo: .json como JSON, cualquier otra como CSV.
+     */
+    private static Lector nuevoLector(Path archivo, InputStreamReader texto) throws IOException {
+        return archivo.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+                ? new LectorJson(texto) : new LectorCsv(texto);
+    }
+
+    /*
+     Convierte y valida un bloque de registros. Se ejecuta en paralelo, en los hilos de validación.
+     */
+    private static Bloque validar(List<String[]> registros, long primerRegistro, int usuarioId, Categorias categorias) {
+        List<Object[]> filas = new ArrayList<>(registros.size());
+        List<String> errores = new ArrayList<>();
+
+        for (int i = 0; i < registros.size(); i++) {
+            String[] campos = registros.get(i);
+            try {
+                filas.add(fila(campos, usuarioId, categorias));
+            } catch (IllegalArgumentException excepcion) {
+                errores.add("Fila " + (primerRegistro + i) + ": " + excepcion.getMessage());
+            }
+        }
+        return new Bloque(filas, errores);
+    }
+
+    /*
+     Parámetros del INSERT (titulo, descripcion, fecha, id_estado, usuario_id, id_categoria) de un registro.
+     Lanza IllegalArgumentException, con el motivo, si el registro no es válido.
+     */
+    private static Object[] fila(String[] campos, int usuarioId, Categorias categorias) {
+        String titulo = limpio(campos[TITULO]);
+        if (titulo == null) throw new IllegalArgumentException("falta el título");
+
+        String descripcion = limpio(campos[DESCRIPCION]);
+        return new Object[]{
+                titulo,
+                descripcion == null ? "" : descripcion,
+                fecha(limpio(campos[FECHA])),
+                estado(limpio(campos[ESTADO])),
+                usuarioId,
+                categoria(limpio(campos[CATEGORIA]), categorias)
+        };
+    }
+
+    private static LocalDate fecha(String texto) {
+        if (texto == null) return null;
+        try {
+            return texto.contains("/") ? LocalDate.parse(texto, FECHA_ESPANOLA)
+                    /* Si trae hora (2025-05-01T10:00:00), solo interesa el día */
+                    : LocalDate.parse(texto.length() > 10 ? texto.substring(0, 10) : texto);
+        } catch (DateTimeParseException excepcion) {
+            throw new IllegalArgumentException("fecha no válida \"" + texto + "\"");
+        }
+    }
+
+    private static EstadoTarea estado(String texto) {
+        if (texto == null) return EstadoTarea.SIN_ESTADO;
+        EstadoTarea estado = EstadoTarea.desdeNombre(texto);
+        if (estado != null) return estado;
+        /* También vale el código numérico (0 a 3), como lo guarda la tabla */
+        if (texto.length() == 1 && texto.charAt(0) >= '0' && texto.charAt(0) < '0' + EstadoTarea.values().length) {
+            return EstadoTarea.desdeCodigo(texto.charAt(0) - '0');
+        }
+        throw new IllegalArgumentException("estado no válido \"" + texto + "\"");
+    }
+
+    private static Integer categoria(String texto, Categorias categorias) {
+        if (texto == null) return null;
+        Integer id = categorias.porNombre().get(texto.toLowerCase(Locale.ROOT));
+        if (id != null) return id;
+        /* Como con el estado, también vale el número, pero el nombre va antes: una categoría llamada "3" no es la 3 */
+        try {
+            int numero = Integer.parseInt(texto);
+            if (categorias.ids().contains(numero)) return numero;
+        } catch (NumberFormatException excepcion) {
+            /* No es un número: no existe ninguna categoría con ese nombre */
+        }
+        throw new IllegalArgumentException("no existe la categoría \"" + texto + "\"");
+    }
+
+    /*
+     Texto sin espacios al principio ni al final, o null si queda vacío.
+     */
+    private static String limpio(String texto) {
+        if (texto == null) return null;
+        String recortado = texto.strip();
+        return recortado.isEmpty() ? null : recortado;
+    }
+
+    private static Bloque esperar(Future<Bloque> bloque) throws IOException {
+        try {
+            return bloque.get();
+        } catch (InterruptedException excepcion) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importación interrumpida", excepcion);
+        } catch (ExecutionException excepcion) {
+            throw new CompletionException(excepcion.getCause());
+        }
+    }
+
+    /*
+     InputStream que cuenta los bytes leídos, para saber qué parte del archivo se ha importado.
+     */
+    private static final class ContadorBytes extends FilterInputStream {
+        private volatile long leidos = 0;
+
+        ContadorBytes(InputStream entrada) {
+            super(entrada);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) leidos++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int cuantos) throws IOException {
+            int n = super.read(destino, desde, cuantos);
+            if (n > 0) leidos += n;
+            return n;
+        }
+    }
+}
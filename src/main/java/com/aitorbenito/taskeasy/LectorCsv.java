@@ -0,0 +1,159 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.io
+*/
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/* ------------------------------------------
+
+            Clase LectorCsv
+
+   ------------------------------------------
+ Lee un CSV de tareas registro a registro, sin cargar el archivo en memoria.
+
+ - La primera línea es la cabecera con los nombres de las columnas (ImportadorTareas.columna),
+   en cualquier orden; las columnas que no conoce se ignoran.
+ - El separador es ',' o ';' (el de Excel en español), según cuál aparezca en la cabecera.
+ - Campos entre comillas dobles, con "" para una comilla y saltos de línea dentro (RFC 4180).
+ */
+final class LectorCsv implements ImportadorTareas.Lector {
+
+    private final Reader entrada;
+    private final char separador;
+    private final int[] columnas;
+    private long registro = 0;
+
+    /* Buffer propio: leer de char en char de un Reader es mucho más lento */
+    private final char[] buffer = new char[64 * 1024];
+    private int posicion = 0;
+    private int limite = 0;
+
+    private final StringBuilder campo = new StringBuilder();
+    private final List<String> campos = new ArrayList<>();
+
+    LectorCsv(Reader entrada) throws IOException {
+        this.entrada = entrada;
+
+        String cabecera = leerLineaCabecera();
+        if (cabecera == null) throw new IOException("El archivo CSV está vacío");
+        /* Quita la marca BOM que añade Excel al principio de los CSV en UTF-8 */
+        if (cabecera.startsWith("\uFEFF")) cabecera = cabecera.substring(1);
+        this.separador = cabecera.indexOf(';') >= 0 && cabecera.indexOf(',') < 0 ? ';' : ',';
+
+        String[] nombres = cabecera.split(String.valueOf(separador), -1);
+        this.columnas = new int[nombres.length];
+        boolean hayTitulo = false;
+        for (int i = 0; i < nombres.length; i++) {
+            columnas[i] = ImportadorTareas.columna(nombres[i].replace("\"", ""));
+            hayTitulo |= columnas[i] == ImportadorTareas.TITULO;
+        }
+        if (!hayTitulo) throw new IOException("La cabecera del CSV no tiene la columna \"titulo\": " + cabecera);
+    }
+
+    @Override
+    public String[] siguiente() throws IOException {
+        while (leerRegistro()) {
+            registro++;
+            /* Las líneas en blanco no son tareas */
+            if (campos.size() == 1 && campos.get(0).isBlank()) continue;
+
+            String[] valores = new String[ImportadorTareas.NUMERO_COLUMNAS];
+            for (int i = 0; i < campos.size() && i < columnas.length; i++) {
+                if (columnas[i] >= 0) valores[columnas[i]] = campos.get(i);
+            }
+            return valores;
+        }
+        return null;
+    }
+
+    @Override
+    public long registro() {
+        return registro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+    /*
+     Lee el siguiente registro en "campos". false si ya no quedan.
+     */
+    private boolean leerRegistro() throws IOException {
+        campos.clear();
+        campo.setLength(0);
+        boolean entreComillas = false;
+        boolean leidoAlgo = false;
+
+        while (true) {
+            int c = leer();
+            if (c < 0) {
+                if (!leidoAlgo) return false;
+                campos.add(campo.toString());
+                return true;
+            }
+            leidoAlgo = true;
+
+            if (entreComillas) {
+                if (c == '"') {
+                    if (mirar() == '"') {
+                        leer();
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                    }
+                } else {
+                    campo.append((char) c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && mirar() == '\n') leer();
+                campos.add(campo.toString());
+                return true;
+            } else {
+                campo.append((char) c);
+            }
+        }
+    }
+
+    /*
+     La cabecera se lee como una línea normal (no lleva saltos de línea entre comillas).
+     */
+    private String leerLineaCabecera() throws IOException {
+        StringBuilder linea = new StringBuilder();
+        int c;
+        while ((c = leer()) >= 0 && c != '\n') {
+            if (c != '\r') linea.append((char) c);
+        }
+        return c < 0 && linea.isEmpty() ? null : linea.toString();
+    }
+
+    private int leer() throws IOException {
+        if (posicion == limite && !rellenar()) return -1;
+        return buffer[posicion++];
+    }
+
+    private int mirar() throws IOException {
+        if (posicion == limite && !rellenar()) return -1;
+        return buffer[posicion];
+    }
+
+    private boolean rellenar() throws IOException {
+        limite = entrada.read(buffer, 0, buffer.length);
+        posicion = 0;
+        if (limite <= 0) {
+            limite = 0;
+            return false;
+        }
+        return true;
+    }
+}
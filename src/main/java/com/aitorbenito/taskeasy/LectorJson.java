@@ -0,0 +1,189 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.io
+*/
+import java.io.IOException;
+import java.io.Reader;
+
+/* ------------------------------------------
+
+            Clase LectorJson
+
+   ------------------------------------------
+ Lee un JSON de tareas objeto a objeto, sin cargar el archivo en memoria.
+
+ El archivo es un array de objetos, uno por tarea, con las mismas claves que las columnas
+ del CSV (ImportadorTareas.columna):
+     [ {"titulo": "Comprar pan", "fecha": "2025-05-01", "estado": "Pendiente", "categoria": "Personal"}, ... ]
+
+ - Los números, true y false se leen como texto; null como campo vacío.
+ - Las claves que no conoce, y los objetos o arrays anidados, se saltan.
+ */
+final class LectorJson implements ImportadorTareas.Lector {
+
+    private final Reader entrada;
+    private long registro = 0;
+    private boolean terminado = false;
+
+    private final char[] buffer = new char[64 * 1024];
+    private int posicion = 0;
+    private int limite = 0;
+
+    private final StringBuilder texto = new StringBuilder();
+
+    LectorJson(Reader entrada) throws IOException {
+        this.entrada = entrada;
+        int c = siguienteSignificativo();
+        /* Quita la marca BOM si el archivo la tiene */
+        if (c == '\uFEFF') c = siguienteSignificativo();
+        if (c != '[') throw error("El archivo JSON tiene que ser un array de tareas: [ {...}, {...} ]");
+    }
+
+    @Override
+    public String[] siguiente() throws IOException {
+        if (terminado) return null;
+
+        int c = siguienteSignificativo();
+        if (c == ',' && registro > 0) c = siguienteSignificativo();
+        if (c == ']') {
+            terminado = true;
+            return null;
+        }
+        if (c != '{') throw error("Se esperaba un objeto '{' con una tarea");
+
+        registro++;
+        String[] valores = new String[ImportadorTareas.NUMERO_COLUMNAS];
+        c = siguienteSignificativo();
+        if (c == '}') return valores;
+
+        while (true) {
+            if (c != '"') throw error("Se esperaba el nombre de un campo entre comillas");
+            int columna = ImportadorTareas.columna(leerCadena());
+
+            if (siguienteSignificativo() != ':') throw error("Se esperaba ':' después del nombre del campo");
+            String valor = leerValor();
+            if (columna >= 0) valores[columna] = valor;
+
+            c = siguienteSignificativo();
+            if (c == '}') return valores;
+            if (c != ',') throw error("Se esperaba ',' o '}' entre los campos de la tarea");
+            c = siguienteSignificativo();
+        }
+    }
+
+    @Override
+    public long registro() {
+        return registro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+    /*
+     Valor de un campo como texto: cadena, número, true/false o null (devuelve null).
+     Los objetos y arrays se saltan enteros y también devuelven null.
+     */
+    private String leerValor() throws IOException {
+        int c = siguienteSignificativo();
+        if (c == '"') return leerCadena();
+        if (c == '{' || c == '[') {
+            saltarAnidado();
+            return null;
+        }
+
+        texto.setLength(0);
+        while (c >= 0 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+            texto.append((char) c);
+            c = leer();
+        }
+        /* El carácter que termina el valor lo vuelve a leer quien llama */
+        if (c >= 0) posicion--;
+
+        String literal = texto.toString();
+        if (literal.isEmpty()) throw error("Falta el valor del campo");
+        return literal.equals("null") ? null : literal;
+    }
+
+    /*
+     Lee una cadena después de la comilla de apertura, con sus escapes.
+     */
+    private String leerCadena() throws IOException {
+        texto.setLength(0);
+        while (true) {
+            int c = leer();
+            if (c < 0) throw error("Cadena sin cerrar");
+            if (c == '"') return texto.toString();
+            if (c != '\\') {
+                texto.append((char) c);
+                continue;
+            }
+
+            int escape = leer();
+            switch (escape) {
+                case '"', '\\', '/' -> texto.append((char) escape);
+                case 'b' -> texto.append('\b');
+                case 'f' -> texto.append('\f');
+                case 'n' -> texto.append('\n');
+                case 'r' -> texto.append('\r');
+                case 't' -> texto.append('\t');
+                case 'u' -> {
+                    int codigo = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digito = Character.digit(leer(), 16);
+                        if (digito < 0) throw error("Escape \\u no válido");
+                        codigo = codigo * 16 + digito;
+                    }
+                    texto.append((char) codigo);
+                }
+                default -> throw error("Escape no válido en una cadena");
+            }
+        }
+    }
+
+    /*
+     Salta un objeto o array completo, con lo que lleve dentro.
+     */
+    private void saltarAnidado() throws IOException {
+        int profundidad = 1;
+        while (profundidad > 0) {
+            int c = leer();
+            if (c < 0) throw error("Objeto o array sin cerrar");
+            if (c == '"') {
+                leerCadena();
+            } else if (c == '{' || c == '[') {
+                profundidad++;
+            } else if (c == '}' || c == ']') {
+                profundidad--;
+            }
+        }
+    }
+
+    private int siguienteSignificativo() throws IOException {
+        int c;
+        do {
+            c = leer();
+        } while (c >= 0 && Character.isWhitespace(c));
+        if (c < 0) throw error("El archivo JSON termina antes de tiempo");
+        return c;
+    }
+
+    private IOException error(String mensaje) {
+        return new IOException(mensaje + " (tarea " + (registro + 1) + ")");
+    }
+
+    private int leer() throws IOException {
+        if (posicion == limite) {
+            limite = entrada.read(buffer, 0, buffer.length);
+            posicion = 0;
+            if (limite <= 0) {
+                limite = 0;
+                return -1;
+            }
+        }
+        return buffer[posicion++];
+    }
+}
@@ -0,0 +1,265 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports javafx
+*/
+import javafx.collections.ObservableListBase;
+
+/*
+Imports java.util
+*/
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* ------------------------------------------
+
+            Clase ListaTareasPaginada
+
+   ------------------------------------------
+ Lista de tareas para la TableView que NO tiene todas las filas en memoria.
+
+ La tabla solo pide (get) las filas que se ven en pantalla. Esta lista las va trayendo
+ de la base de datos por páginas según se hace scroll:
+
+ - Las páginas se consultan por clave (keyset) sobre (usuario_id, fecha, id) con ConsultasTareas.pagina,
+   en segundo plano y con el filtro activo de la tabla. Mientras llega una página, sus filas se muestran como "Cargando…".
+ - Además de la página pedida se piden las siguientes (lectura anticipada), para que al bajar ya estén.
+   Cada una se pide cuando ya ha llegado la anterior, para tener su ancla y no tener que contar filas (OFFSET).
+ - Solo se guardan en memoria las últimas MAX_PAGINAS_EN_MEMORIA páginas usadas (LRU).
+ - Con la escritura diferida, cada página llega con las ediciones aún en cola encima
+   (ColaEscrituraDiferida.superponer), y una tarea editada se cambia en su página con actualizar.
+
+ Todo se usa desde el hilo de JavaFX: las consultas terminan en él con BaseDeDatosAsync.enFx.
+ */
+final class ListaTareasPaginada extends ObservableListBase<Tarea> {
+
+    /* Filas por página */
+    static final int TAMANO_PAGINA = 200;
+
+    /* Páginas que se guardan como máximo (unas 5.000 tareas) */
+    private static final int MAX_PAGINAS_EN_MEMORIA = 25;
+
+    /* Páginas que se piden por adelantado después de la que se está viendo */
+    private static final int PAGINAS_ANTICIPADAS = 2;
+
+    /* Desde que se pide una página hasta que sus filas están en la tabla (ver Metricas) */
+    private static final Metricas.Histograma TIEMPO_PAGINA = Metricas.histograma("tabla.pagina");
+
+    /*
+     Fila que se muestra mientras su página se está cargando.
+     Tiene id 0, así que nunca coincide con una tarea real.
+     */
+    static final Tarea FILA_PENDIENTE = new Tarea(0, "Cargando…", null, null, null, null);
+
+    private final int usuarioId;
+    private final FiltroTareas filtro;
+    private int total = 0;
+
+    /* Páginas cargadas, en orden de uso: la primera es la que hace más tiempo que no se usa */
+    private final LinkedHashMap<Integer, List<Tarea>> paginas = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Tarea>> masAntigua) {
+            return size() > MAX_PAGINAS_EN_MEMORIA;
+        }
+    };
+
+    /* Clave de la última tarea de cada página ya vista: es el ancla para pedir la siguiente */
+    private final Map<Integer, ConsultasTareas.Clave> anclas = new HashMap<>();
+
+    /* Páginas que se están consultando ahora mismo */
+    private final Set<Integer> pendientes = new HashSet<>();
+
+    /* Última página que ha pedido la tabla: la lectura anticipada llega hasta PAGINAS_ANTICIPADAS después */
+    private int paginaVista = 0;
+
+    /* Cambia en cada recarga, para descartar las respuestas de consultas anteriores */
+    private int generacion = 0;
+
+    ListaTareasPaginada(int usuarioId, FiltroTareas filtro, int total) {
+        this.usuarioId = usuarioId;
+        this.filtro = filtro;
+        this.total = total;
+    }
+
+    @Override
+    public int size() {
+        return total;
+    }
+
+    /* ----------------------------------
+
+                Metodo get
+
+       ----------------------------------
+     Devuelve la tarea si su página está en memoria. Si no, pide la página
+     y devuelve FILA_PENDIENTE; cuando llegue, la tabla se refresca sola.
+     */
+    @Override
+    public Tarea get(int indice) {
+        if (indice < 0 || indice >= total) throw new IndexOutOfBoundsException(indice);
+
+        int numeroPagina = indice / TAMANO_PAGINA;
+        List<Tarea> pagina = paginas.get(numeroPagina);
+
+        paginaVista = numeroPagina;
+        anticipar(numeroPagina);
+
+        int posicion = indice % TAMANO_PAGINA;
+        if (pagina != null && posicion < pagina.size()) return pagina.get(posicion);
+
+        pedirPagina(numeroPagina);
+        return FILA_PENDIENTE;
+    }
+
+    /* ----------------------------------
+
+              Metodo recargar
+
+       ----------------------------------
+     Vacía la caché y vuelve a contar las tareas. Se usa tras insertar o eliminar:
+     las páginas visibles se vuelven a pedir en cuanto la tabla se redibuja.
+     */
+    void recargar() {
+        int esta = ++generacion;
+        paginas.clear();
+        anclas.clear();
+        pendientes.clear();
+
+        BaseDeDatosAsync.enFx(
+                BaseDeDatosAsync.enSegundoPlano(() -> ConsultasTareas.contar(usuarioId, filtro)),
+                nuevoTotal -> {
+                    if (esta != generacion) return;
+                    cambiarTotal(nuevoTotal);
+                },
+                error -> Metricas.error("contar tareas", error)
+        );
+    }
+
+    /* ----------------------------------
+
+              Metodo actualizar
+
+       ----------------------------------
+     Cambia la tarea modificada en la página donde esté, sin volver a consultar nada.
+     Si su página no está en memoria no hace falta: llegará de la base de datos (o de la cola
+     de escritura diferida) con la versión nueva. Sigue en la misma posición aunque haya cambiado
+     su fecha, hasta la próxima recarga.
+     */
+    void actualizar(Tarea tarea) {
+        for (Map.Entry<Integer, List<Tarea>> entrada : paginas.entrySet()) {
+            List<Tarea> pagina = entrada.getValue();
+            for (int posicion = 0; posicion < pagina.size(); posicion++) {
+                if (pagina.get(posicion).getId() != tarea.getId()) continue;
+
+                Tarea anterior = pagina.set(posicion, tarea);
+                int indice = entrada.getKey() * TAMANO_PAGINA + posicion;
+                if (indice < total) {
+                    beginChange();
+                    nextSet(indice, anterior);
+                    endChange();
+                }
+                return;
+            }
+        }
+    }
+
+    /*
+     Avisa a la tabla del nuevo tamaño y de que las filas visibles han cambiado.
+     */
+    private void cambiarTotal(int nuevoTotal) {
+        int anterior = total;
+        total = nuevoTotal;
+
+        beginChange();
+        if (Math.min(anterior, nuevoTotal) > 0) nextUpdate(0);
+        if (nuevoTotal > anterior) {
+            nextAdd(anterior, nuevoTotal);
+        } else if (nuevoTotal < anterior) {
+            nextRemove(nuevoTotal, Collections.nCopies(anterior - nuevoTotal, FILA_PENDIENTE));
+        }
+        endChange();
+    }
+
+    /*
+     Lectura anticipada: pide las páginas que siguen a "numeroPagina", hasta PAGINAS_ANTICIPADAS
+     después de la que se está viendo, pero solo las que ya tienen el ancla de la anterior.
+     Las demás se piden desde guardarPagina, cuando llega la página anterior.
+     */
+    private void anticipar(int numeroPagina) {
+        for (int pagina = numeroPagina; pagina < paginaVista + PAGINAS_ANTICIPADAS; pagina++) {
+            if (!anclas.containsKey(pagina)) return;
+            pedirPagina(pagina + 1);
+        }
+    }
+
+    /*
+     Consulta la página en segundo plano si no está ya en memoria o pedida.
+     */
+    private void pedirPagina(int numeroPagina) {
+        if (numeroPagina * TAMANO_PAGINA >= total) return;
+        if (paginas.containsKey(numeroPagina) || !pendientes.add(numeroPagina)) return;
+
+        int esta = generacion;
+        long inicio = System.nanoTime();
+        ConsultasTareas.Clave ancla = numeroPagina == 0 ? null : anclas.get(numeroPagina - 1);
+        boolean conocida = numeroPagina == 0 || ancla != null;
+        Map<Integer, Tarea> enCola = ColaEscrituraDiferida.instantanea();
+
+        BaseDeDatosAsync.enFx(
+                BaseDeDatosAsync.enSegundoPlano(() -> {
+                    /* Si nunca hemos visto la página anterior (salto con la barra), buscamos su última clave */
+                    ConsultasTareas.Clave desde = conocida
+                            ? ancla
+                            : ConsultasTareas.claveEn(usuarioId, filtro, numeroPagina * TAMANO_PAGINA - 1);
+                    return ConsultasTareas.pagina(usuarioId, filtro, desde, TAMANO_PAGINA);
+                }),
+                tareas -> {
+                    if (esta != generacion) return;
+                    pendientes.remove(numeroPagina);
+                    guardarPagina(numeroPagina, tareas, enCola);
+                    TIEMPO_PAGINA.registrarDesde(inicio);
+                },
+                error -> {
+                    if (esta == generacion) pendientes.remove(numeroPagina);
+                    Metricas.error("cargar página de tareas", error);
+                }
+        );
+    }
+
+    private void guardarPagina(int numeroPagina, List<Tarea> tareas, Map<Integer, Tarea> enCola) {
+        /* El ancla sale de la fila tal como está en la base de datos, que es por donde sigue la consulta */
+        if (!tareas.isEmpty()) {
+            anclas.put(numeroPagina, ConsultasTareas.Clave.de(tareas.get(tareas.size() - 1)));
+        }
+        /* Lista modificable: actualizar cambia en ella las tareas editadas */
+        paginas.put(numeroPagina, new ArrayList<>(ColaEscrituraDiferida.superponer(tareas, enCola, null)));
+
+        int desde = numeroPagina * TAMANO_PAGINA;
+
+        /*
+         Una página incompleta es la última: si el total decía que había más filas (se han borrado tareas
+         desde que se contó), se ajusta para que no se queden filas "Cargando…" que nunca van a llegar.
+         */
+        if (tareas.size() < TAMANO_PAGINA && desde + tareas.size() < total) {
+            cambiarTotal(desde + tareas.size());
+        }
+
+        int hasta = Math.min(desde + tareas.size(), total);
+        if (desde < hasta) {
+            beginChange();
+            for (int i = desde; i < hasta; i++) {
+                nextUpdate(i);
+            }
+            endChange();
+        }
+
+        anticipar(numeroPagina);
+    }
+}
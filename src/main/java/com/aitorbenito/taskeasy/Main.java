@@ -1,12 +1,15 @@
 /*Creado por Aitor Benito Heras "ExInDer"*/
 package com.aitorbenito.taskeasy;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
+import javafx.application.Platform;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import javafx.scene.image.Image;
+import javafx.util.Duration;
 
 import java.util.Objects;
 
@@ -43,23 +46,34 @@ public class Main extends Application {
      - Crear la escena con ese contenido.
      - Configurar el escenario (Stage) principal.
      - Mostrar la ventana.
+     - Empezar a precargar en segundo plano la ventana principal y el formulario (PrecargaVistas)
+       mientras el usuario escribe sus credenciales.
+
+     Cada fase se mide con PerfilArranque, hasta el primer frame de la ventana de login.
 
      Stage o escenario, Ventana principal que crea automáticamente JavaFX.
      */
     @Override
     public void start(Stage escenario) throws Exception {
+        PerfilArranque.marcar("Inicio de JavaFX");
+
         /*
             Al iniciar la aplicación se llama a asegurarInicio() para asegurarnos de:
                 - Que la base de datos existe
                 - Que sus tablas están creadas
                 - Que la estructura de la base de datos es válida.
             Esto evita errores si la base de datos local no está presente o necesita inicializarse (porque ya nos ha pasado)
+            Es el único sitio donde se llama: el resto de la aplicación ya encuentra el esquema al día.
         */
         BaseDeDatos.asegurarInicio();
+        PerfilArranque.marcar("Base de datos y migraciones");
+
+        /* Con el esquema ya al día, se empiezan a cargar las vistas que vendrán después del login */
+        PrecargaVistas.iniciar();
 
         /* Cargar el archivo FXML del login */
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/view/logueo.fxml"));
-        Parent root = fxmlLoader.load();
+        Parent root = PrecargaVistas.cargar("/view/logueo.fxml").raiz();
+        PerfilArranque.marcar("Carga de logueo.fxml");
 
         aplicarIcono(escenario);
 
@@ -68,6 +82,74 @@ public class Main extends Application {
         escenario.setScene(new Scene(root, 400, 300));
         escenario.setResizable(false);  // Evitar redimensionar la ventana de login
         escenario.show();               // Mostrarla en pantalla
+
+        PerfilArranque.marcar("Ventana de login visible");
+        esperarPrimerFrame(escenario.getScene());
+    }
+
+    /*
+     El primer pulso de JavaFX después de show() aplica el CSS, coloca los controles y dibuja la ventana.
+     Al acabar su layout se da el arranque por terminado ("primer frame") y se muestra el informe.
+     */
+    private static void esperarPrimerFrame(Scene escena) {
+        escena.addPostLayoutPulseListener(new Runnable() {
+            private boolean hecho = false;
+
+            @Override
+            public void run() {
+                if (hecho) return;
+                hecho = true;
+                /* Solo interesa el primer pulso: el oyente se quita fuera del pulso */
+                Platform.runLater(() -> escena.removePostLayoutPulseListener(this));
+
+                PerfilArranque.marcar("Primer frame del login");
+                PerfilArranque.informe();
+
+                if (Boolean.parseBoolean(BaseDeDatos.configuracion("salir_tras_arranque"))) {
+                    Platform.runLater(Main::salirTrasArranque);
+                }
+            }
+        });
+    }
+
+    /*
+     Opción "salir_tras_arranque" (-Dtaskeasy.salir_tras_arranque=true): la usan el entrenamiento
+     de AppCDS (perfil appcds del pom.xml) y scripts/benchmark-arranque.sh.
+     Tras el primer frame abre también la ventana principal, sin usuario, para que se carguen
+     sus clases, y un segundo después cierra la aplicación.
+     */
+    private static void salirTrasArranque() {
+        abrirMain();
+        PauseTransition espera = new PauseTransition(Duration.seconds(1));
+        espera.setOnFinished(evento -> Platform.exit());
+        espera.play();
+    }
+
+
+
+    /*-----------------------
+          Metodo stop:
+      -----------------------
+     JavaFX lo ejecuta al cerrar la aplicación (también tras Platform.exit()).
+     Escribimos las modificaciones que queden en la cola de escritura diferida
+     (si no se puede, se avisa de cuántas se pierden), esperamos a las operaciones en segundo plano y cerramos las conexiones
+     con la base de datos para que SQLite libere el archivo.
+     Por último se guardan las métricas de la sesión en metricas.json (Metricas.volcar).
+     */
+    @Override
+    public void stop() {
+        int perdidas = ColaEscrituraDiferida.cerrar();
+        if (perdidas > 0) {
+            Alert aviso = new Alert(Alert.AlertType.ERROR);
+            aviso.setTitle("Error al guardar");
+            aviso.setHeaderText(null);
+            aviso.setContentText("No se han podido guardar las modificaciones de " + perdidas
+                    + " tareas. Esas tareas se quedan como estaban en la última vez que se guardaron.");
+            aviso.showAndWait();
+        }
+        BaseDeDatosAsync.cerrar();
+        BaseDeDatos.cerrar();
+        Metricas.volcar();
     }
 
 
@@ -84,7 +166,9 @@ public class Main extends Application {
      - Se haya cerrado la ventana de login.
 
      ¿Qué hace este metodo?
-     - Carga el archivo main.fxml, que contiene el diseño del gestor de tareas.
+     - Recoge main.fxml, que contiene el diseño del gestor de tareas, ya precargado
+       durante el login (PrecargaVistas), o lo carga ahora si aún no estaba.
+     - Carga las tareas del usuario (ControladorPrincipal.cargarDatosIniciales).
      - Crea una nueva ventana (Stage).
      - Aplica la escena y muestra el panel principal de la aplicación.
 
@@ -92,8 +176,9 @@ public class Main extends Application {
      */
     public static void abrirMain() {
         try {
-            FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("/view/main.fxml"));
-            Parent root = fxmlLoader.load();
+            long inicio = System.nanoTime();
+            PrecargaVistas.Vista<ControladorPrincipal> vista = PrecargaVistas.principal();
+            Parent root = vista.raiz();
 
             Stage escenario = new Stage();
             Scene escena = new Scene(root, 900, 600);
@@ -121,10 +206,15 @@ public class Main extends Application {
 
             escenario.setTitle("TaskEasy — Gestor de tareas");
             escenario.setScene(escena);
+
+            /* Las tareas se piden en segundo plano, la ventana se muestra mientras llegan */
+            vista.controlador().cargarDatosIniciales();
             escenario.show();
+            PerfilArranque.registrar("Ventana principal visible tras el login", inicio);
+            Metricas.histograma("ventana.principal").registrarDesde(inicio);
 
         } catch (Exception e) {
-            e.printStackTrace();
+            Metricas.error("abrir ventana principal", e);
         }
     }
 
@@ -141,8 +231,8 @@ public class Main extends Application {
             stage.getIcons().add(icono);
 
         } catch (NullPointerException e) {
-            // Si el icono no se encuentra, imprime el error pero permite que la aplicación continúe sin icono.
-            System.err.println("ADVERTENCIA: No se pudo cargar el icono de la aplicación. " + e.getMessage());
+            // Si el icono no se encuentra, se informa del error pero la aplicación continúa sin icono.
+            Metricas.error("cargar icono", e);
         }
     }
 
@@ -154,6 +244,7 @@ public class Main extends Application {
      de arrancar el entorno gráfico JavaFX y, posteriormente, llamar a `start()``.
      */
     public static void main(String[] args) {
+        PerfilArranque.marcarInicio("Arranque de la JVM hasta Main.main");
         launch(args);  // Arranca JavaFX
     }
 }
@@ -0,0 +1,413 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.io, java.nio y java.time
+*/
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/*
+Imports java.util
+*/
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/* ------------------------------------------
+
+            Clase Metricas
+
+   ------------------------------------------
+ Métricas de la aplicación mientras está abierta: dónde se va el tiempo y qué ha fallado.
+
+ - Contadores: cuántas veces ha pasado algo (filas leídas, errores...). LongAdder, sin candados.
+ - Indicadores: un valor que se lee en el momento de consultarlo (memoria, conexiones abiertas...).
+ - Histogramas de tiempos: recuento, media, percentiles y máximo de lo que dura una operación
+   (cada operación de BaseDeDatos, carga de los FXML, recargas de la tabla...).
+ - Errores: Metricas.error(origen, excepcion) los cuenta, guarda los últimos y los muestra por consola.
+
+ Se consultan en Ayuda → Diagnóstico (ControladorDiagnostico) y se guardan en metricas.json,
+ en la carpeta de datos, al cerrar la aplicación (Main.stop).
+
+ Registrar una medida cuesta unas decenas de nanosegundos, así que las métricas están siempre activas.
+ Los nombres llevan el área delante ("bd.", "fxml.", "tabla."...) y se enseñan ordenados.
+ */
+final class Metricas {
+
+    private static final Map<String, Contador> CONTADORES = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> INDICADORES = new ConcurrentHashMap<>();
+    private static final Map<String, Histograma> HISTOGRAMAS = new ConcurrentHashMap<>();
+
+    /* Últimos errores, para la ventana de diagnóstico. Los más antiguos se descartan. */
+    private static final int ERRORES_GUARDADOS = 50;
+    private static final Deque<ErrorRegistrado> ULTIMOS_ERRORES = new ArrayDeque<>();
+    private static final Contador ERRORES = contador("errores");
+
+    private static final String ARCHIVO_VOLCADO = "metricas.json";
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /*
+     Error guardado: cuándo, dónde (origen) y qué excepción.
+     */
+    record ErrorRegistrado(LocalDateTime fecha, String origen, String mensaje) {
+        String fechaTexto() {
+            return fecha.format(FORMATO_FECHA);
+        }
+    }
+
+    /*
+     Resumen de un histograma en milisegundos.
+     */
+    record Resumen(long recuento, double media, double p50, double p90, double p99, double p999, double maximo) {}
+
+    /*
+     Indicadores de la JVM. Solo con java.base: el runtime de jlink del instalador no lleva java.management.
+     El tiempo activa cuenta desde que se carga esta clase, que es al abrir la base de datos, al arrancar.
+     */
+    private static final long INICIO = System.nanoTime();
+
+    static {
+        Runtime runtime = Runtime.getRuntime();
+        indicador("jvm.memoria_usada_mb", () -> (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        indicador("jvm.memoria_maxima_mb", () -> runtime.maxMemory() >> 20);
+        indicador("jvm.hilos", Thread::activeCount);
+        indicador("app.segundos_activa", () -> TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - INICIO));
+    }
+
+    private Metricas() {}
+
+    /* ---- Registro ---- */
+
+    /*
+     Contador con ese nombre; se crea la primera vez que se pide.
+     */
+    static Contador contador(String nombre) {
+        return CONTADORES.computeIfAbsent(nombre, clave -> new Contador());
+    }
+
+    /*
+     Histograma de tiempos con ese nombre; se crea la primera vez que se pide.
+     */
+    static Histograma histograma(String nombre) {
+        return HISTOGRAMAS.computeIfAbsent(nombre, clave -> new Histograma());
+    }
+
+    /*
+     Registra (o sustituye) un indicador. "valor" se llama cada vez que se consultan las métricas,
+     desde cualquier hilo: tiene que ser rápido y no bloquear.
+     */
+    static void indicador(String nombre, LongSupplier valor) {
+        INDICADORES.put(nombre, valor);
+    }
+
+    /* ----------------------------------
+
+                 Metodo error
+
+       ----------------------------------
+     Punto común para informar de un error: lo cuenta (en "errores" y en "errores.<origen>"),
+     lo guarda entre los últimos y lo muestra por consola con su traza, como hasta ahora.
+     "origen" dice dónde ha pasado, en pocas palabras ("cargar tareas", "login"...).
+     */
+    static void error(String origen, Throwable excepcion) {
+        ERRORES.incrementar();
+        contador("errores." + origen).incrementar();
+
+        ErrorRegistrado registrado = new ErrorRegistrado(LocalDateTime.now(), origen, String.valueOf(excepcion));
+        synchronized (ULTIMOS_ERRORES) {
+            if (ULTIMOS_ERRORES.size() == ERRORES_GUARDADOS) ULTIMOS_ERRORES.removeFirst();
+            ULTIMOS_ERRORES.addLast(registrado);
+        }
+
+        System.err.println("[error] " + origen + ":");
+        excepcion.printStackTrace();
+    }
+
+    /* ---- Consulta ---- */
+
+    static Map<String, Long> contadores() {
+        Map<String, Long> valores = new TreeMap<>();
+        CONTADORES.forEach((nombre, contador) -> valores.put(nombre, contador.valor()));
+        return valores;
+    }
+
+    /*
+     Valor actual de cada indicador. Si alguno falla al leerse se deja fuera.
+     */
+    static Map<String, Long> indicadores() {
+        Map<String, Long> valores = new TreeMap<>();
+        INDICADORES.forEach((nombre, indicador) -> {
+            try {
+                valores.put(nombre, indicador.getAsLong());
+            } catch (RuntimeException excepcion) {
+                /* Un indicador que no se puede leer ahora (por ejemplo, con la base de datos ya cerrada) */
+            }
+        });
+        return valores;
+    }
+
+    static Map<String, Resumen> histogramas() {
+        Map<String, Resumen> valores = new TreeMap<>();
+        HISTOGRAMAS.forEach((nombre, histograma) -> valores.put(nombre, histograma.resumen()));
+        return valores;
+    }
+
+    /*
+     Últimos errores, del más antiguo al más reciente.
+     */
+    static List<ErrorRegistrado> ultimosErrores() {
+        synchronized (ULTIMOS_ERRORES) {
+            return List.copyOf(ULTIMOS_ERRORES);
+        }
+    }
+
+    /* ----------------------------------
+
+                 Metodo json
+
+       ----------------------------------
+     Todas las métricas en JSON: contadores, indicadores, histogramas (en milisegundos),
+     fases del arranque (PerfilArranque) y últimos errores.
+     */
+    static String json() {
+        List<String> contadores = new ArrayList<>();
+        contadores().forEach((nombre, valor) -> contadores.add(cadena(nombre) + ": " + valor));
+
+        List<String> indicadores = new ArrayList<>();
+        indicadores().forEach((nombre, valor) -> indicadores.add(cadena(nombre) + ": " + valor));
+
+        List<String> histogramas = new ArrayList<>();
+        histogramas().forEach((nombre, resumen) -> histogramas.add(cadena(nombre)
+                + ": {\"recuento\": " + resumen.recuento()
+                + ", \"media\": " + decimal(resumen.media())
+                + ", \"p50\": " + decimal(resumen.p50())
+                + ", \"p90\": " + decimal(resumen.p90())
+                + ", \"p99\": " + decimal(resumen.p99())
+                + ", \"p99.9\": " + decimal(resumen.p999())
+                + ", \"max\": " + decimal(resumen.maximo()) + "}"));
+
+        List<String> arranque = new ArrayList<>();
+        for (PerfilArranque.Fase fase : PerfilArranque.fases()) {
+            arranque.add(cadena(fase.nombre()) + ": " + decimal(fase.nanos() / 1e6));
+        }
+
+        List<String> errores = new ArrayList<>();
+        for (ErrorRegistrado error : ultimosErrores()) {
+            errores.add("{\"fecha\": " + cadena(error.fechaTexto()) + ", \"origen\": " + cadena(error.origen())
+                    + ", \"mensaje\": " + cadena(error.mensaje()) + "}");
+        }
+
+        return "{\n"
+                + "  \"fecha\": " + cadena(LocalDateTime.now().format(FORMATO_FECHA)) + ",\n"
+                + "  \"contadores\": {" + miembros(contadores) + "},\n"
+                + "  \"indicadores\": {" + miembros(indicadores) + "},\n"
+                + "  \"histogramas_ms\": {" + miembros(histogramas) + "},\n"
+                + "  \"arranque_ms\": {" + miembros(arranque) + "},\n"
+                + "  \"ultimos_errores\": [" + miembros(errores) + "]\n"
+                + "}\n";
+    }
+
+    /* ----------------------------------
+
+                 Metodo volcar
+
+       ----------------------------------
+     Guarda json() en metricas.json, en la carpeta de datos (junto a la base de datos).
+     Se llama al cerrar la aplicación (Main.stop); cada vez sustituye al del cierre anterior.
+     Se escribe en un temporal y se mueve, para no dejar nunca un archivo a medias.
+     */
+    static Path volcar() {
+        Path destino = BaseDeDatos.carpetaDatos().toPath().resolve(ARCHIVO_VOLCADO);
+        try {
+            Path temporal = Files.createTempFile(destino.getParent(), ".metricas-", ".tmp");
+            Files.writeString(temporal, json(), StandardCharsets.UTF_8);
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return destino;
+        } catch (IOException | RuntimeException excepcion) {
+            StringWriter traza = new StringWriter();
+            excepcion.printStackTrace(new PrintWriter(traza));
+            System.err.println("No se pudieron guardar las métricas en " + destino + System.lineSeparator() + traza);
+            return null;
+        }
+    }
+
+    /*
+     Miembros de un objeto o array JSON, uno por línea; nada si no hay ninguno.
+     */
+    private static String miembros(List<String> miembros) {
+        if (miembros.isEmpty()) return "";
+        return "\n    " + String.join(",\n    ", miembros) + "\n  ";
+    }
+
+    private static String decimal(double valor) {
+        return String.format(Locale.ROOT, "%.3f", valor);
+    }
+
+    private static String cadena(String texto) {
+        StringBuilder json = new StringBuilder(texto.length() + 2).append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /* ------------------------------------------
+
+                Clase Contador
+
+       ------------------------------------------ */
+    static final class Contador {
+        private final LongAdder valor = new LongAdder();
+
+        private Contador() {}
+
+        void incrementar() {
+            valor.increment();
+        }
+
+        void sumar(long cantidad) {
+            valor.add(cantidad);
+        }
+
+        long valor() {
+            return valor.sum();
+        }
+    }
+
+    /* ------------------------------------------
+
+                Clase Histograma
+
+       ------------------------------------------
+     Histograma de tiempos en nanosegundos, con cubetas de tamaño logarítmico como HdrHistogram:
+     cada potencia de dos se parte en SUBCUBETAS cubetas iguales, así que cualquier valor se guarda
+     con un error menor de 1/SUBCUBETAS (1,6 %), sea de microsegundos o de minutos,
+     con un array fijo de contadores y sin guardar las medidas una a una.
+
+     - Los valores menores que 2 * SUBCUBETAS nanosegundos tienen su propia cubeta (exactos).
+     - Para el resto, la cubeta sale de la posición del bit más alto (la potencia de dos)
+       y de los BITS_SUBCUBETA bits siguientes.
+     - Los percentiles se dan con el valor más alto de su cubeta (nunca por debajo del real),
+       y el máximo es exacto.
+     */
+    static final class Histograma {
+
+        private static final int BITS_SUBCUBETA = 6;
+        private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+
+        /* Potencia de dos más alta: 2^42 ns son más de 70 minutos; lo que pase de ahí va a la última cubeta */
+        private static final int MAGNITUD_MAXIMA = 42;
+        private static final long VALOR_MAXIMO = (1L << (MAGNITUD_MAXIMA + 1)) - 1;
+
+        private static final int CUBETAS = 2 * SUBCUBETAS + (MAGNITUD_MAXIMA - BITS_SUBCUBETA) * SUBCUBETAS;
+
+        private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+        private final LongAdder suma = new LongAdder();
+        private final LongAccumulator maximo = new LongAccumulator(Long::max, 0);
+
+        private Histograma() {}
+
+        /*
+         Registra lo que ha tardado una operación, en nanosegundos.
+         */
+        void registrar(long nanos) {
+            long valor = Math.min(Math.max(nanos, 0), VALOR_MAXIMO);
+            cubetas.incrementAndGet(cubeta(valor));
+            suma.add(valor);
+            maximo.accumulate(valor);
+        }
+
+        /*
+         Registra lo que ha pasado desde "inicio" (System.nanoTime()) hasta ahora.
+         */
+        void registrarDesde(long inicio) {
+            registrar(System.nanoTime() - inicio);
+        }
+
+        static int cubeta(long valor) {
+            if (valor < 2 * SUBCUBETAS) return (int) valor;
+            int magnitud = 63 - Long.numberOfLeadingZeros(valor);
+            int desplazamiento = magnitud - BITS_SUBCUBETA;
+            return 2 * SUBCUBETAS + (magnitud - BITS_SUBCUBETA - 1) * SUBCUBETAS
+                    + (int) (valor >>> desplazamiento) - SUBCUBETAS;
+        }
+
+        /*
+         Valor más alto que cae en la cubeta.
+         */
+        static long valorMaximoDe(int cubeta) {
+            if (cubeta < 2 * SUBCUBETAS) return cubeta;
+            int posicion = cubeta - 2 * SUBCUBETAS;
+            int magnitud = BITS_SUBCUBETA + 1 + posicion / SUBCUBETAS;
+            long sub = SUBCUBETAS + posicion % SUBCUBETAS;
+            return ((sub + 1) << (magnitud - BITS_SUBCUBETA)) - 1;
+        }
+
+        /* ----------------------------------
+
+                    Metodo resumen
+
+           ----------------------------------
+         Recuento, media, percentiles 50/90/99/99,9 y máximo, en milisegundos.
+         Se calcula recorriendo las cubetas una vez; mientras tanto se puede seguir registrando.
+         */
+        Resumen resumen() {
+            long[] copia = new long[CUBETAS];
+            long recuento = 0;
+            for (int i = 0; i < CUBETAS; i++) {
+                copia[i] = cubetas.get(i);
+                recuento += copia[i];
+            }
+            if (recuento == 0) return new Resumen(0, 0, 0, 0, 0, 0, 0);
+
+            long max = maximo.get();
+            double[] percentiles = {50, 90, 99, 99.9};
+            double[] valores = new double[percentiles.length];
+            long acumulado = 0;
+            int siguiente = 0;
+            for (int i = 0; i < CUBETAS && siguiente < percentiles.length; i++) {
+                acumulado += copia[i];
+                while (siguiente < percentiles.length
+                        && acumulado >= Math.max(1, (long) Math.ceil(recuento * percentiles[siguiente] / 100))) {
+                    valores[siguiente++] = milis(Math.min(valorMaximoDe(i), max));
+                }
+            }
+            return new Resumen(recuento, milis(suma.sum()) / recuento,
+                    valores[0], valores[1], valores[2], valores[3], milis(max));
+        }
+
+        private static double milis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
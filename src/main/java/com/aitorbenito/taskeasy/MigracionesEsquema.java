@@ -0,0 +1,342 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.sql
+*/
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/*
+Imports java.util
+*/
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/* ------------------------------------------
+
+            Clase MigracionesEsquema
+
+   ------------------------------------------
+ Motor de migraciones de la base de datos, con versiones.
+
+ La versión del esquema se guarda dentro del propio archivo SQLite con PRAGMA user_version
+ (0 en una base de datos nueva o creada antes de este sistema).
+
+ - Cada migración tiene un número de versión y se aplica en orden, una sola vez.
+ - Cada una va en su propia transacción junto con el cambio de user_version:
+   si falla, se deshace entera y la base de datos se queda en la versión anterior.
+ - Si la base de datos ya está en la última versión, solo se lee user_version y no se toca nada más.
+
+ Para cambiar el esquema se AÑADE una migración nueva al final de la lista, nunca se modifican las que ya existen.
+ */
+final class MigracionesEsquema {
+
+    /*
+     Cambio del esquema que aplica una migración.
+     */
+    @FunctionalInterface
+    private interface Paso {
+        void aplicar(Statement stat) throws SQLException;
+    }
+
+    private record Migracion(int version, String descripcion, Paso paso) {}
+
+    /*
+     Lista ordenada de migraciones. La versión de cada una debe ser la anterior + 1.
+     */
+    private static final List<Migracion> MIGRACIONES = List.of(
+            new Migracion(1, "Tablas iniciales y columnas añadidas a 'tareas'", MigracionesEsquema::esquemaInicial),
+            new Migracion(2, "Índices compuestos de 'tareas' por usuario", MigracionesEsquema::indicesTareas),
+            new Migracion(3, "Fechas de 'tareas' en ISO-8601 y NULL sin fecha", MigracionesEsquema::fechasIso),
+            new Migracion(4, "Índice de texto completo (FTS5) de títulos y descripciones", MigracionesEsquema::busquedaTexto),
+            new Migracion(5, "Índice de 'tareas' por usuario y categoría", MigracionesEsquema::indiceCategoria),
+            new Migracion(6, "Estado de 'tareas' como código entero con la tabla 'estados'", MigracionesEsquema::estadosNumericos)
+    );
+
+    /* Versión del esquema que espera esta versión de la aplicación */
+    static final int VERSION_ACTUAL = MIGRACIONES.get(MIGRACIONES.size() - 1).version();
+
+    private MigracionesEsquema() {}
+
+    /* ----------------------------------
+
+                Metodo aplicar
+
+       ----------------------------------
+     Lleva la base de datos hasta VERSION_ACTUAL aplicando las migraciones que falten.
+     Se llama con la conexión de escritura (BaseDeDatos.asegurarInicio).
+     */
+    static void aplicar(Connection conexion) throws SQLException {
+
+        try (Statement stat = conexion.createStatement()) {
+
+            int version = leerVersion(stat);
+            if (version >= VERSION_ACTUAL) return;
+
+            boolean autoCommit = conexion.getAutoCommit();
+            conexion.setAutoCommit(false);
+
+            try {
+                for (Migracion migracion : MIGRACIONES) {
+                    if (migracion.version() <= version) continue;
+
+                    try {
+                        migracion.paso().aplicar(stat);
+                        stat.execute("PRAGMA user_version = " + migracion.version());
+                        conexion.commit();
+                        Metricas.contador("bd.migraciones_aplicadas").incrementar();
+
+                    } catch (SQLException excepcion) {
+                        conexion.rollback();
+                        throw new SQLException("Falló la migración " + migracion.version()
+                                + " (" + migracion.descripcion() + ")", excepcion);
+                    }
+                }
+            } finally {
+                conexion.setAutoCommit(autoCommit);
+                /* Las migraciones pueden haber cambiado las categorías */
+                RegistroCategorias.invalidar();
+            }
+        }
+    }
+
+    private static int leerVersion(Statement stat) throws SQLException {
+        try (ResultSet resultSet = stat.executeQuery("PRAGMA user_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /* -------------------------------------------------------
+
+               MIGRACIÓN 1: Esquema inicial
+
+       -------------------------------------------------------
+     Crea las tablas si no existen y añade a 'tareas' las columnas que se añadieron más tarde.
+     Las bases de datos anteriores a este sistema están en la versión 0 y pueden tener
+     ya parte del esquema, por eso aquí todo usa IF NOT EXISTS o comprueba antes.
+     */
+    private static void esquemaInicial(Statement stat) throws SQLException {
+
+        /*
+         Tabla 'tareas': almacena todas las tareas creadas por los usuarios.
+         */
+        stat.execute("""
+                    CREATE TABLE IF NOT EXISTS tareas (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,   -- Identificador único de la tarea
+                        titulo TEXT NOT NULL,                   -- Título obligatorio
+                        descripcion TEXT,                       -- Texto opcional
+                        fecha TEXT,                             -- Fecha (dd/MM/yyyy hasta la migración 3, luego yyyy-MM-dd)
+                        estado TEXT,                            -- Estado de la tarea
+                        usuario_id INTEGER DEFAULT 0            -- Relación con el usuario
+                    );
+                """);
+
+        /*
+         Tabla 'categorias': permite asignar etiquetas a las tareas.
+         */
+        stat.execute("""
+                    CREATE TABLE IF NOT EXISTS categorias (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        nombre TEXT NOT NULL UNIQUE,
+                        color TEXT
+                    );
+                """);
+
+        /*
+         Categorías por defecto (solo si la tabla está vacía)
+         */
+        try (ResultSet resulSet = stat.executeQuery("SELECT COUNT(*) AS total FROM categorias")) {
+            if (resulSet.next() && resulSet.getInt("total") == 0) {
+                stat.execute("INSERT INTO categorias (nombre) VALUES ('Sin categoría');");
+                stat.execute("INSERT INTO categorias (nombre) VALUES ('Trabajo');");
+                stat.execute("INSERT INTO categorias (nombre) VALUES ('Personal');");
+                stat.execute("INSERT INTO categorias (nombre) VALUES ('Urgente');");
+            }
+        }
+
+        /*
+         Tabla 'usuarios': cada usuario tiene su propia lista de tareas.
+         nombre y email son UNIQUE, así que SQLite ya crea un índice único para cada uno,
+         que es el que usan las búsquedas del login.
+         */
+        stat.execute("""
+                    CREATE TABLE IF NOT EXISTS usuarios (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,       -- Identificador de usuario
+                        nombre TEXT UNIQUE NOT NULL,                -- Nombre visible
+                        email TEXT UNIQUE NOT NULL,                 -- Email único
+                        password TEXT NOT NULL                      -- Contraseña cifrada o texto (según implementación)
+                    );
+                """);
+
+        /*
+         Columnas id_categoria y usuario_id de 'tareas', que no existían en las primeras versiones.
+         PRAGMA table_info devuelve el esquema de la tabla, lo recorremos una sola vez.
+         */
+        Set<String> columnas = new HashSet<>();
+        try (ResultSet resultSet = stat.executeQuery("PRAGMA table_info(tareas);")) {
+            while (resultSet.next()) {
+                columnas.add(resultSet.getString("name").toLowerCase());
+            }
+        }
+
+        if (!columnas.contains("id_categoria")) {
+            stat.execute("ALTER TABLE tareas ADD COLUMN id_categoria INTEGER DEFAULT NULL;");
+        }
+        if (!columnas.contains("usuario_id")) {
+            stat.execute("ALTER TABLE tareas ADD COLUMN usuario_id INTEGER DEFAULT 0;");
+        }
+    }
+
+    /* -------------------------------------------------------
+
+               MIGRACIÓN 2: Índices de 'tareas'
+
+       -------------------------------------------------------
+     Sin índice, cada carga de tareas recorre la tabla entera aunque solo queramos las de un usuario.
+     - (usuario_id, fecha): la carga principal (WHERE usuario_id = ? ORDER BY fecha) no necesita ordenar.
+     - (usuario_id, estado): para filtrar las tareas de un usuario por estado.
+     Las estadísticas para que el planificador elija bien el índice no se calculan aquí, con la base de
+     datos casi vacía: las pone al día PRAGMA optimize al cerrar (GestorConexiones.close).
+     */
+    private static void indicesTareas(Statement stat) throws SQLException {
+        stat.execute("CREATE INDEX IF NOT EXISTS idx_tareas_usuario_fecha ON tareas (usuario_id, fecha);");
+        stat.execute("CREATE INDEX IF NOT EXISTS idx_tareas_usuario_estado ON tareas (usuario_id, estado);");
+    }
+
+    /* -------------------------------------------------------
+
+               MIGRACIÓN 3: Fechas en ISO-8601
+
+       -------------------------------------------------------
+     Las fechas se guardaban como texto dd/MM/yyyy, o con el texto "Sin fecha establecida".
+     Así "ORDER BY fecha" ordenaba por el día del mes y no se podían buscar rangos de fechas.
+
+     Se pasan a yyyy-MM-dd (ISO-8601), que se ordena igual que las fechas, y todo lo que
+     no sea una fecha válida pasa a NULL ("sin fecha"). date() devuelve NULL para un texto que no es
+     fecha y normaliza los días imposibles (31/02), así que basta con comparar el resultado con el original. El índice (usuario_id, fecha) se actualiza solo.
+     */
+    private static void fechasIso(Statement stat) throws SQLException {
+        stat.execute("""
+                    UPDATE tareas
+                       SET fecha = substr(fecha, 7, 4) || '-' || substr(fecha, 4, 2) || '-' || substr(fecha, 1, 2)
+                     WHERE fecha GLOB '[0-9][0-9]/[0-9][0-9]/[0-9][0-9][0-9][0-9]';
+                """);
+        stat.execute("""
+                    UPDATE tareas
+                       SET fecha = NULL
+                     WHERE fecha IS NOT NULL
+                       AND date(fecha) IS NOT fecha;
+                """);
+    }
+
+    /* -------------------------------------------------------
+
+               MIGRACIÓN 4: Búsqueda de texto completo
+
+       -------------------------------------------------------
+     Tabla virtual FTS5 'tareas_fts' con el título y la descripción de cada tarea, para el buscador.
+     Es de "contenido externo" (content='tareas'): no guarda otra copia del texto, solo el índice
+     de palabras, y su rowid es el id de la tarea.
+
+     También se indexa usuario_id, para que el filtro por usuario se resuelva dentro del propio
+     índice FTS5 en lugar de ir a buscar a 'tareas' cada tarea que coincide.
+
+     unicode61 con remove_diacritics 2 hace que "cancion" encuentre "Canción".
+
+     Los triggers mantienen el índice al día con cada INSERT, UPDATE y DELETE de 'tareas';
+     'rebuild' indexa las tareas que ya existían.
+     */
+    private static void busquedaTexto(Statement stat) throws SQLException {
+        stat.execute("""
+                    CREATE VIRTUAL TABLE IF NOT EXISTS tareas_fts USING fts5(
+                        titulo,
+                        descripcion,
+                        usuario_id,
+                        content = 'tareas',
+                        content_rowid = 'id',
+                        tokenize = 'unicode61 remove_diacritics 2'
+                    );
+                """);
+
+        stat.execute("""
+                    CREATE TRIGGER IF NOT EXISTS tareas_fts_insertar AFTER INSERT ON tareas BEGIN
+                        INSERT INTO tareas_fts (rowid, titulo, descripcion, usuario_id)
+                        VALUES (new.id, new.titulo, new.descripcion, new.usuario_id);
+                    END;
+                """);
+
+        stat.execute("""
+                    CREATE TRIGGER IF NOT EXISTS tareas_fts_eliminar AFTER DELETE ON tareas BEGIN
+                        INSERT INTO tareas_fts (tareas_fts, rowid, titulo, descripcion, usuario_id)
+                        VALUES ('delete', old.id, old.titulo, old.descripcion, old.usuario_id);
+                    END;
+                """);
+
+        stat.execute("""
+                    CREATE TRIGGER IF NOT EXISTS tareas_fts_actualizar AFTER UPDATE OF titulo, descripcion, usuario_id ON tareas BEGIN
+                        INSERT INTO tareas_fts (tareas_fts, rowid, titulo, descripcion, usuario_id)
+                        VALUES ('delete', old.id, old.titulo, old.descripcion, old.usuario_id);
+                        INSERT INTO tareas_fts (rowid, titulo, descripcion, usuario_id)
+                        VALUES (new.id, new.titulo, new.descripcion, new.usuario_id);
+                    END;
+                """);
+
+        stat.execute("INSERT INTO tareas_fts (tareas_fts) VALUES ('rebuild');");
+    }
+
+    /* -------------------------------------------------------
+
+               MIGRACIÓN 5: Índice por categoría
+
+       -------------------------------------------------------
+     Para el filtro por categoría de la tabla principal (FiltroTareas): con (usuario_id, id_categoria)
+     SQLite va directamente a las tareas de esa categoría, igual que ya hacía con el estado.
+     */
+    private static void indiceCategoria(Statement stat) throws SQLException {
+        stat.execute("CREATE INDEX IF NOT EXISTS idx_tareas_usuario_categoria ON tareas (usuario_id, id_categoria);");
+    }
+
+    /* -------------------------------------------------------
+
+               MIGRACIÓN 6: Estado como código entero
+
+       -------------------------------------------------------
+     El estado se guardaba como texto libre ("Pendiente", "En curso"...) en cada tarea.
+     Ahora cada tarea guarda solo un código entero (id_estado) y los nombres están una vez
+     en la tabla 'estados'. Los códigos son los de EstadoTarea (su ordinal).
+
+     Los textos antiguos se convierten sin distinguir mayúsculas ni espacios;
+     los que no son ningún estado conocido (o NULL) pasan a 0, "Sin estado definido".
+     Después se borra la columna 'estado' y el índice (usuario_id, estado) pasa a ser (usuario_id, id_estado).
+     */
+    private static void estadosNumericos(Statement stat) throws SQLException {
+        stat.execute("""
+                    CREATE TABLE IF NOT EXISTS estados (
+                        id INTEGER PRIMARY KEY,
+                        nombre TEXT NOT NULL UNIQUE
+                    );
+                """);
+        stat.execute("""
+                    INSERT OR IGNORE INTO estados (id, nombre) VALUES
+                        (0, 'Sin estado definido'),
+                        (1, 'Pendiente'),
+                        (2, 'En curso'),
+                        (3, 'Completada');
+                """);
+
+        stat.execute("ALTER TABLE tareas ADD COLUMN id_estado INTEGER NOT NULL DEFAULT 0 REFERENCES estados (id);");
+        stat.execute("""
+                    UPDATE tareas
+                       SET id_estado = COALESCE(
+                               (SELECT e.id FROM estados e WHERE lower(e.nombre) = lower(trim(tareas.estado))), 0);
+                """);
+
+        stat.execute("DROP INDEX IF EXISTS idx_tareas_usuario_estado;");
+        stat.execute("ALTER TABLE tareas DROP COLUMN estado;");
+        stat.execute("CREATE INDEX IF NOT EXISTS idx_tareas_usuario_estado ON tareas (usuario_id, id_estado);");
+    }
+}
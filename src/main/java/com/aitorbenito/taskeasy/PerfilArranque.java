@@ -0,0 +1,140 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.util
+*/
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* ------------------------------------------
+
+            Clase PerfilArranque
+
+   ------------------------------------------
+ Mide cuánto tarda cada fase del arranque de la aplicación:
+ JVM, JavaFX, base de datos y migraciones, carga de logueo.fxml, ventana de login visible, primer frame...
+ y, en segundo plano, la precarga de main.fxml y formularioTareas.fxml (PrecargaVistas).
+
+ - marcar(fase): fases seguidas del hilo de JavaFX. Cada una dura desde la marca anterior.
+ - registrar(fase, inicio): fases que van en paralelo (otro hilo) o que empiezan más tarde,
+   como la apertura de la ventana principal tras el login.
+
+ Las medidas se guardan siempre (son unas pocas). Se muestran por consola con la opción
+ "perfil_arranque = true" en taskeasy.properties (o -Dtaskeasy.perfil_arranque=true).
+ */
+final class PerfilArranque {
+
+    /* Una fase medida y lo que ha durado */
+    record Fase(String nombre, long nanos) {
+        long milisegundos() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+
+    private static final List<Fase> FASES = new ArrayList<>();
+
+    /*
+     La JVM no sabe con precisión cuándo se lanzó el proceso, así que quien la lanza puede indicarlo con
+     -Dtaskeasy.inicio_lanzador=<milisegundos desde 1970> (lo hace scripts/benchmark-arranque.sh).
+     -1 si no se ha indicado.
+     */
+    private static final long DESDE_LANZAMIENTO_MS = milisegundosDesdeLanzamiento();
+
+    /*
+     Instante (System.nanoTime) de la última marca. Con inicio_lanzador, la primera fase cuenta desde
+     el lanzamiento; si no, marcarInicio la pone en Main.main.
+     */
+    private static long ultimaMarca = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(Math.max(0, DESDE_LANZAMIENTO_MS));
+
+    /* Suma de las fases seguidas (marcar): desde el lanzamiento (o desde Main.main) hasta la última marca */
+    private static long totalSeguido = 0;
+
+    private PerfilArranque() {}
+
+    /*
+     Primera marca, en Main.main. La fase que cierra (el arranque de la JVM) solo se guarda si se sabe
+     cuándo se lanzó el proceso: sin inicio_lanzador saldría casi 0 ms, que no es lo que tarda.
+     En ese caso las fases empiezan a contar desde aquí.
+     */
+    static synchronized void marcarInicio(String fase) {
+        if (DESDE_LANZAMIENTO_MS >= 0) {
+            marcar(fase);
+        } else {
+            ultimaMarca = System.nanoTime();
+        }
+    }
+
+    /*
+     Cierra la fase que empezó en la marca anterior y empieza la siguiente.
+     */
+    static synchronized void marcar(String fase) {
+        long ahora = System.nanoTime();
+        FASES.add(new Fase(fase, ahora - ultimaMarca));
+        totalSeguido += ahora - ultimaMarca;
+        ultimaMarca = ahora;
+    }
+
+    /*
+     Guarda una fase que empezó en "inicio" (System.nanoTime) y acaba ahora, sin mover la última marca.
+     Si el perfil está activado la muestra al momento.
+     */
+    static void registrar(String fase, long inicio) {
+        Fase medida = new Fase(fase, System.nanoTime() - inicio);
+        synchronized (PerfilArranque.class) {
+            FASES.add(medida);
+        }
+        if (activo()) System.out.println("[arranque] " + formatear(medida));
+    }
+
+    /*
+     Copia de todas las fases medidas hasta ahora, en el orden en que terminaron.
+     */
+    static synchronized List<Fase> fases() {
+        return List.copyOf(FASES);
+    }
+
+    /* ----------------------------------
+
+               Metodo informe
+
+       ----------------------------------
+     Muestra las fases medidas hasta ahora y el total de las fases seguidas (marcar),
+     que es lo que tarda la aplicación en estar lista. Se llama tras el primer frame del login.
+     */
+    static void informe() {
+        if (!activo()) return;
+
+        long total;
+        synchronized (PerfilArranque.class) {
+            total = totalSeguido;
+        }
+        StringBuilder texto = new StringBuilder("[arranque] Tiempo por fase:");
+        for (Fase fase : fases()) {
+            texto.append(System.lineSeparator()).append("[arranque]   ").append(formatear(fase));
+        }
+        /* Sin inicio_lanzador no se sabe lo que ha tardado la JVM: el total empieza en Main.main */
+        texto.append(System.lineSeparator())
+                .append(DESDE_LANZAMIENTO_MS >= 0 ? "[arranque] Hasta el primer frame: " : "[arranque] Desde Main.main hasta el primer frame: ")
+                .append(TimeUnit.NANOSECONDS.toMillis(total)).append(" ms");
+        System.out.println(texto);
+    }
+
+    private static long milisegundosDesdeLanzamiento() {
+        try {
+            String inicio = System.getProperty("taskeasy.inicio_lanzador");
+            return inicio == null ? -1 : Math.max(0, System.currentTimeMillis() - Long.parseLong(inicio.trim()));
+        } catch (NumberFormatException excepcion) {
+            return -1;
+        }
+    }
+
+    private static String formatear(Fase fase) {
+        return String.format("%-45s %6d ms", fase.nombre(), fase.milisegundos());
+    }
+
+    private static boolean activo() {
+        return Boolean.parseBoolean(BaseDeDatos.configuracion("perfil_arranque"));
+    }
+}
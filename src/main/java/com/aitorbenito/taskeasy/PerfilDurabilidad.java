@@ -0,0 +1,108 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports sqlite-jdbc, para configurar las conexiones
+*/
+import org.sqlite.SQLiteConfig;
+
+/*
+Imports java.util
+*/
+import java.util.Locale;
+
+/* ------------------------------------------
+
+            Enum PerfilDurabilidad
+
+   ------------------------------------------
+ Cómo de seguro es cada commit frente a un corte de luz o un cierre del sistema,
+ a cambio de velocidad de escritura.
+
+ Todos los perfiles abren la base de datos en modo WAL (write-ahead log): las escrituras van
+ a un archivo aparte (taskeasy.db-wal) y los lectores siguen leyendo mientras hay un escritor.
+ Lo que cambia es PRAGMA synchronous:
+
+ - SEGURO:      FULL   → fsync en cada commit. No se pierde nada de lo confirmado.
+ - EQUILIBRADO: NORMAL → fsync solo al volcar el WAL a la base de datos. Tras un corte de luz se pueden
+                         perder los últimos commits, pero la base de datos nunca queda corrupta. Por defecto.
+ - RAPIDO:      OFF    → nunca espera al disco. Tras un corte de luz (no un cierre de la aplicación)
+                         la base de datos puede quedar corrupta. Solo para importaciones o pruebas.
+
+ El perfil se elige en el archivo "taskeasy.properties", junto a taskeasy.db, con la línea:
+     durabilidad = seguro | equilibrado | rapido
+ o con la propiedad del sistema -Dtaskeasy.durabilidad=..., que tiene prioridad.
+ */
+public enum PerfilDurabilidad {
+
+    SEGURO(SQLiteConfig.SynchronousMode.FULL),
+    EQUILIBRADO(SQLiteConfig.SynchronousMode.NORMAL),
+    RAPIDO(SQLiteConfig.SynchronousMode.OFF);
+
+    /*
+     Ajustes comunes a todos los perfiles.
+     - cache_size negativo son KiB: 16 MiB de caché de páginas por conexión.
+     - mmap_size: lee la base de datos mapeada en memoria (hasta 64 MiB), sin copiar páginas.
+     - temp_store MEMORY: las tablas temporales de ORDER BY / GROUP BY no van a disco.
+     - busy_timeout: si otro proceso tiene la base de datos bloqueada, espera en lugar de fallar.
+     */
+    private static final int CACHE_KIB = -16 * 1024;
+    private static final long MMAP_BYTES = 64L * 1024 * 1024;
+    private static final int ESPERA_BLOQUEO_MS = 5_000;
+
+    private final SQLiteConfig.SynchronousMode sincronizacion;
+
+    PerfilDurabilidad(SQLiteConfig.SynchronousMode sincronizacion) {
+        this.sincronizacion = sincronizacion;
+    }
+
+    /* ----------------------------------
+
+            Metodo configEscritura
+
+       ----------------------------------
+     Configuración de la conexión de escritura. Es la que pone la base de datos en modo WAL;
+     el modo se guarda en el propio archivo, así que las de lectura ya lo encuentran puesto.
+     */
+    SQLiteConfig configEscritura() {
+        SQLiteConfig configuracion = configComun();
+        configuracion.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        configuracion.setSynchronous(sincronizacion);
+        return configuracion;
+    }
+
+    /*
+     Configuración de las conexiones de solo lectura del pool.
+     */
+    SQLiteConfig configLectura() {
+        SQLiteConfig configuracion = configComun();
+        configuracion.setReadOnly(true);
+        return configuracion;
+    }
+
+    private static SQLiteConfig configComun() {
+        SQLiteConfig configuracion = new SQLiteConfig();
+        configuracion.setCacheSize(CACHE_KIB);
+        configuracion.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(MMAP_BYTES));
+        configuracion.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        configuracion.setBusyTimeout(ESPERA_BLOQUEO_MS);
+        return configuracion;
+    }
+
+    /*
+     Perfil a partir del valor de la opción "durabilidad" (BaseDeDatos.configuracion).
+     "seguro", "Equilibrado", " rápido "... → el perfil. Sin valor o con cualquier otro texto → EQUILIBRADO
+     (un texto desconocido se informa con Metricas.error).
+     */
+    static PerfilDurabilidad desdeTexto(String valor) {
+        if (valor == null || valor.isBlank()) return EQUILIBRADO;
+
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT).replace('Á', 'A'));
+        } catch (IllegalArgumentException excepcion) {
+            Metricas.error("leer durabilidad", new IllegalArgumentException(
+                    "Perfil de durabilidad desconocido '" + valor + "', se usa EQUILIBRADO", excepcion));
+            return EQUILIBRADO;
+        }
+    }
+}
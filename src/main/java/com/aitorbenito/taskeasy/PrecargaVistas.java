@@ -0,0 +1,127 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports javafx
+*/
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+/*
+Imports java.io y concurrencia
+*/
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* ------------------------------------------
+
+            Clase PrecargaVistas
+
+   ------------------------------------------
+ Carga main.fxml y formularioTareas.fxml en segundo plano mientras el usuario está en el login,
+ para que al iniciar sesión la ventana principal (y el primer formulario) se abran sin esperar
+ a leer el FXML, crear los controles y cargar sus clases.
+
+ Cargar un FXML fuera del hilo de JavaFX está permitido mientras sus nodos no estén en
+ una ventana visible. Por eso ControladorPrincipal.initialize solo prepara la interfaz
+ y las tareas del usuario se cargan después, en cargarDatosIniciales().
+
+ Cada vista precargada se usa una sola vez: la siguiente vez que se muestre el login
+ se vuelve a llamar a iniciar(). Si la precarga falla o no se ha pedido, la vista se carga al momento.
+ */
+final class PrecargaVistas {
+
+    /* Raíz de un FXML ya cargado y su controlador */
+    record Vista<C>(Parent raiz, C controlador) {}
+
+    private static final String RUTA_PRINCIPAL = "/view/main.fxml";
+    private static final String RUTA_FORMULARIO = "/view/formularioTareas.fxml";
+
+    /*
+     Un solo hilo, daemon: las dos vistas se cargan una detrás de otra (la principal primero)
+     sin quitarle CPU al login, y no impide que la aplicación se cierre.
+     */
+    private static final ExecutorService HILO = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "taskeasy-precarga-vistas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private static Future<Vista<ControladorPrincipal>> principal;
+    private static Future<Vista<ControladorFormularioTareas>> formulario;
+
+    private PrecargaVistas() {}
+
+    /* ----------------------------------
+
+              Metodo iniciar
+
+       ----------------------------------
+     Empieza a cargar en segundo plano las vistas que no estén ya precargadas.
+     Se llama cada vez que se muestra el login, con la base de datos ya inicializada.
+     */
+    static synchronized void iniciar() {
+        if (principal == null) principal = HILO.submit(() -> cargarMidiendo(RUTA_PRINCIPAL));
+        if (formulario == null) formulario = HILO.submit(() -> cargarMidiendo(RUTA_FORMULARIO));
+    }
+
+    /*
+     Vista principal precargada (esperando a que termine si aún se está cargando), o cargada ahora.
+     */
+    static Vista<ControladorPrincipal> principal() throws IOException {
+        Future<Vista<ControladorPrincipal>> precarga;
+        synchronized (PrecargaVistas.class) {
+            precarga = principal;
+            principal = null;
+        }
+        return obtener(precarga, RUTA_PRINCIPAL);
+    }
+
+    /*
+     Vista del formulario de tareas precargada, o cargada ahora.
+     */
+    static Vista<ControladorFormularioTareas> formulario() throws IOException {
+        Future<Vista<ControladorFormularioTareas>> precarga;
+        synchronized (PrecargaVistas.class) {
+            precarga = formulario;
+            formulario = null;
+        }
+        return obtener(precarga, RUTA_FORMULARIO);
+    }
+
+    private static <C> Vista<C> obtener(Future<Vista<C>> precarga, String ruta) throws IOException {
+        if (precarga != null) {
+            try {
+                return precarga.get();
+            } catch (ExecutionException excepcion) {
+                /* Si la precarga ha fallado se intenta otra vez aquí, y si vuelve a fallar se informa */
+                Metricas.error("precarga de vistas", excepcion.getCause());
+            } catch (InterruptedException excepcion) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return cargar(ruta);
+    }
+
+    private static <C> Vista<C> cargarMidiendo(String ruta) throws IOException {
+        long inicio = System.nanoTime();
+        Vista<C> vista = cargar(ruta);
+        PerfilArranque.registrar("Precarga de " + ruta.substring(ruta.lastIndexOf('/') + 1) + " (en segundo plano)", inicio);
+        return vista;
+    }
+
+    /*
+     Carga el FXML. Lo que tarda se guarda en la métrica "fxml.<archivo>" (Metricas),
+     tanto si se precarga como si se carga al momento.
+     */
+    static <C> Vista<C> cargar(String ruta) throws IOException {
+        long inicio = System.nanoTime();
+        FXMLLoader cargadorFXML = new FXMLLoader(PrecargaVistas.class.getResource(ruta));
+        Parent raiz = cargadorFXML.load();
+        Metricas.histograma("fxml." + ruta.substring(ruta.lastIndexOf('/') + 1)).registrarDesde(inicio);
+        return new Vista<>(raiz, cargadorFXML.getController());
+    }
+}
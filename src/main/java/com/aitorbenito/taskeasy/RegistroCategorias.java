@@ -0,0 +1,85 @@
+/*Creado por Aitor Benito Heras "ExInDer"*/
+package com.aitorbenito.taskeasy;
+
+/*
+Imports java.util
+*/
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* ------------------------------------------
+
+            Clase RegistroCategorias
+
+   ------------------------------------------
+ Copia en memoria de la tabla 'categorias', indexada por id.
+
+ Se carga de la base de datos la primera vez que alguien la pide y se reutiliza
+ en la tabla principal (columna Categoría), en el ComboBox del formulario y en
+ cualquier otro sitio que necesite las categorías.
+ Cuando las categorías cambien en la base de datos hay que llamar a invalidar().
+ */
+public class RegistroCategorias {
+
+    /*
+     Nombre que se muestra cuando la tarea no tiene categoría o no existe.
+     */
+    public static final String SIN_CATEGORIA = "Sin categoría";
+
+    /*
+     Mapa id → Categoria en el mismo orden que en la base de datos (ORDER BY id).
+     Es inmutable: al invalidar se sustituye entero, nunca se modifica.
+     */
+    private static volatile Map<Integer, Categoria> categorias = null;
+
+    /*
+     Devuelve todas las categorías, cargándolas si hace falta.
+     */
+    public static List<Categoria> todas() {
+        return List.copyOf(cargadas().values());
+    }
+
+    /*
+     Devuelve la categoría con ese id, o null si no existe.
+     */
+    public static Categoria buscar(int id) {
+        return cargadas().get(id);
+    }
+
+    /*
+     Devuelve el nombre de la categoría con ese id, o "Sin categoría" si no existe.
+     */
+    public static String nombreDe(int id) {
+        Categoria categoria = buscar(id);
+        return categoria != null ? categoria.getNombre() : SIN_CATEGORIA;
+    }
+
+    /*
+     Descarta la copia en memoria, la siguiente consulta vuelve a leer la base de datos.
+     */
+    public static void invalidar() {
+        categorias = null;
+    }
+
+    private static Map<Integer, Categoria> cargadas() {
+        Map<Integer, Categoria> actuales = categorias;
+
+        if (actuales == null) {
+            synchronized (RegistroCategorias.class) {
+                actuales = categorias;
+                if (actuales == null) {
+                    Map<Integer, Categoria> mapa = new LinkedHashMap<>();
+                    for (Categoria categoria : BaseDeDatos.obtenerCategorias()) {
+                        mapa.put(categoria.getId(), categoria);
+                    }
+                    actuales = Collections.unmodifiableMap(mapa);
+                    /* Si la lectura falla la lista llega vacía: no la guardamos para reintentar */
+                    if (!actuales.isEmpty()) categorias = actuales;
+                }
+            }
+        }
+        return actuales;
+    }
+}
@@ -5,8 +5,21 @@ package com.aitorbenito.taskeasy;
 Imports javaFX
 */
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 
+/*
+Imports java.sql
+*/
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/*
+Imports java.time
+*/
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
 /* ---------------------------------
 
             Clase Tarea
@@ -19,16 +32,32 @@ import javafx.beans.property.SimpleStringProperty;
 */
 public class Tarea {
 
+    /*
+     Formato con el que se MUESTRAN las fechas al usuario.
+     En la base de datos se guardan en ISO-8601 (yyyy-MM-dd), o NULL si la tarea no tiene fecha.
+     */
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    /*
+     Valores de la tarea tal como vienen de la base de datos.
+     Es un record inmutable con el id y la categoría como int primitivos y el estado como enum:
+     ocupa mucho menos que seis SimpleXxxProperty, cada una con sus listeners.
+     */
+    record Datos(int id, String titulo, String descripcion, LocalDate fecha, EstadoTarea estado, int idCategoria) {}
+
+    private final Datos datos;
+
     /*
     El uso de SimpleXxxProperty es la clave de JavaFX para el Data Binding.
     Permite que la vista (TableView) observe estos campos.
+    Se crean la primera vez que se piden (metodos xxxProperty()): la mayoría de las tareas
+    cargadas nunca llegan a mostrarse en una celda, y esas no crean ninguna.
     */
-    private final SimpleIntegerProperty id;
-    private final SimpleStringProperty titulo;
-    private final SimpleStringProperty descripcion;
-    private final SimpleStringProperty fecha;
-    private final SimpleStringProperty estado;
-    private final SimpleIntegerProperty idCategoria;
+    private SimpleStringProperty titulo;
+    private SimpleStringProperty descripcion;
+    private SimpleObjectProperty<LocalDate> fecha;
+    private SimpleObjectProperty<EstadoTarea> estado;
+    private SimpleIntegerProperty idCategoria;
 
     /* -------------------------------------------------
 
@@ -36,14 +65,34 @@ public class Tarea {
 
        -------------------------------------------------
         Usado para poder mapear datos de la BaseDeDatos.
+        Una tarea sin estado (null) queda como EstadoTarea.SIN_ESTADO.
+     */
+    public Tarea(int id, String titulo, String descripcion, LocalDate fecha, EstadoTarea estado, Integer idCategoria) {
+        this.datos = new Datos(id, titulo, descripcion, fecha,
+                estado != null ? estado : EstadoTarea.SIN_ESTADO,
+                idCategoria != null ? idCategoria : 0);
+    }
+
+    /* -------------------------------------------------
+
+              Metodo desdeFila
+
+       -------------------------------------------------
+        Mapeo de la fila actual de un ResultSet de la tabla 'tareas' a un objeto Tarea.
+        Se usa como mapeador en BaseDeDatos.consultar(...): Tarea::desdeFila
+        Es el único sitio donde la fecha de la base de datos (texto ISO o NULL) se convierte en LocalDate
+        y el código id_estado en EstadoTarea.
      */
-    public Tarea(int id, String titulo, String descripcion, String fecha, String estado, Integer idCategoria) {
-        this.id = new SimpleIntegerProperty(id);
-        this.titulo = new SimpleStringProperty(titulo);
-        this.descripcion = new SimpleStringProperty(descripcion);
-        this.fecha = new SimpleStringProperty(fecha);
-        this.estado = new SimpleStringProperty(estado);
-        this.idCategoria = new SimpleIntegerProperty(idCategoria != null ? idCategoria : 0);
+    public static Tarea desdeFila(ResultSet resultSet) throws SQLException {
+        String fecha = resultSet.getString("fecha");
+        return new Tarea(
+                resultSet.getInt("id"),
+                resultSet.getString("titulo"),
+                resultSet.getString("descripcion"),
+                fecha != null ? LocalDate.parse(fecha) : null,
+                EstadoTarea.desdeCodigo(resultSet.getInt("id_estado")),
+                resultSet.getObject("id_categoria") != null ? resultSet.getInt("id_categoria") : null
+        );
     }
 
     /* ----------------------------------
@@ -51,14 +100,23 @@ public class Tarea {
             Métodos GETTERS:
 
        ---------------------------------
-    Devuelven el valor primitivo (String o int) de cada uno de los campos de las columnas de la tabla
+    Devuelven el valor (String, int, fecha o estado) de cada uno de los campos de las columnas de la tabla.
+    Si la propiedad ya existe se lee de ella, por si se ha enlazado y cambiado desde la vista.
     */
-    public int getId() { return id.get(); }
-    public String getTitulo() { return titulo.get(); }
-    public String getDescripcion() { return descripcion.get(); }
-    public String getFecha() { return fecha.get(); }
-    public String getEstado() { return estado.get(); }
-    public int getIdCategoria() { return idCategoria.get(); }
+    public int getId() { return datos.id(); }
+    public String getTitulo() { return titulo != null ? titulo.get() : datos.titulo(); }
+    public String getDescripcion() { return descripcion != null ? descripcion.get() : datos.descripcion(); }
+    public LocalDate getFecha() { return fecha != null ? fecha.get() : datos.fecha(); }
+    public EstadoTarea getEstado() { return estado != null ? estado.get() : datos.estado(); }
+    public int getIdCategoria() { return idCategoria != null ? idCategoria.get() : datos.idCategoria(); }
+
+
+    /*
+     Texto de la fecha para mostrarla en pantalla (dd/MM/yyyy), o null si no tiene.
+     */
+    public static String formatearFecha(LocalDate fecha) {
+        return fecha != null ? fecha.format(FORMATO_FECHA) : null;
+    }
 
 
     /* ------------------------------------
@@ -68,11 +126,32 @@ public class Tarea {
       ------------------------------------
      Devolviendo el objeto "property":
      Permiten la conexión directa entre los datos y los componentes de JavaFX.
+     Cada propiedad se crea al pedirla por primera vez, con el valor del record.
+     Solo se llaman desde el hilo de JavaFX, así que no hace falta sincronizar.
      */
-    public SimpleStringProperty tituloProperty() { return titulo; }
-    public SimpleStringProperty descripcionProperty() { return descripcion; }
-    public SimpleStringProperty fechaProperty() { return fecha; }
-    public SimpleStringProperty estadoProperty() { return estado; }
-    public SimpleIntegerProperty idCategoriaProperty() { return idCategoria; }
+    public SimpleStringProperty tituloProperty() {
+        if (titulo == null) titulo = new SimpleStringProperty(this, "titulo", datos.titulo());
+        return titulo;
+    }
+
+    public SimpleStringProperty descripcionProperty() {
+        if (descripcion == null) descripcion = new SimpleStringProperty(this, "descripcion", datos.descripcion());
+        return descripcion;
+    }
+
+    public SimpleObjectProperty<LocalDate> fechaProperty() {
+        if (fecha == null) fecha = new SimpleObjectProperty<>(this, "fecha", datos.fecha());
+        return fecha;
+    }
+
+    public SimpleObjectProperty<EstadoTarea> estadoProperty() {
+        if (estado == null) estado = new SimpleObjectProperty<>(this, "estado", datos.estado());
+        return estado;
+    }
+
+    public SimpleIntegerProperty idCategoriaProperty() {
+        if (idCategoria == null) idCategoria = new SimpleIntegerProperty(this, "idCategoria", datos.idCategoria());
+        return idCategoria;
+    }
 
 }
\ No newline at end of file